@@ -0,0 +1,86 @@
+import java.util.function.IntSupplier;
+
+import benchmarks.Engine;
+
+// Gives the benchmarks in package benchmarks access to the engine classes in the default package
+public class EngineAdapter implements Engine {
+
+    private static final int NUM_POSITIONS = 1024;
+
+    @Override
+    public IntSupplier evaluate(int dimensions) {
+        Rng random = new XorShiftRng(1);
+        int numCells = new BitBoard(dimensions).numCells;
+        BitBoard[] positions = new BitBoard[NUM_POSITIONS];
+        for (int i = 0; i < NUM_POSITIONS; i++) {
+            positions[i] = playRandomly(dimensions, random.nextInt(numCells + 1), random);
+        }
+
+        int[] next = new int[1];
+        return () -> positions[next[0]++ & (NUM_POSITIONS - 1)].evaluate();
+    }
+
+    @Override
+    public IntSupplier solve(int dimensions, int stones) {
+        // Position after the given number of random moves in which nobody has won yet
+        Rng random = new XorShiftRng(7);
+        BitBoard position;
+        do {
+            position = playRandomly(dimensions, stones, random);
+        } while (position.evaluate() != BitBoard.NOT_OVER);
+
+        BitBoard board = position;
+        int player = board.numStones % 2 == 0 ? BitBoard.MAX : BitBoard.MIN;
+        TranspositionTable table = new TranspositionTable(dimensions == 2 ? 16 : 20);
+        return () -> {
+            table.clear();
+            return Minimax.search(board, player, table, Budget.unlimited())[0];
+        };
+    }
+
+    @Override
+    public IntSupplier mcts(int dimensions, int iterations, String policy) {
+        BitBoard board = new BitBoard(dimensions);
+        MCTS tree = new MCTS(1 << 20, new XorShiftRng(5));
+        tree.setRolloutPolicy(getPolicy(policy));
+        return () -> {
+            tree.clear();
+            return tree.search(board, BitBoard.MAX, iterations, 1, MCTS.TREE_PARALLEL);
+        };
+    }
+
+    @Override
+    public IntSupplier rollout(int dimensions, String policy) {
+        BitBoard state = new BitBoard(dimensions);
+        int[] moves = new int[state.numCells];
+        Rng random = new XorShiftRng(3);
+        RolloutPolicy rolloutPolicy = getPolicy(policy);
+        return () -> {
+            state.clear();
+            return MCTS.runRandomly(state, BitBoard.MAX, moves, random, rolloutPolicy);
+        };
+    }
+
+    private static RolloutPolicy getPolicy(String name) {
+        switch (name) {
+            case "random":
+                return RolloutPolicy.RANDOM;
+            case "tactical":
+                return RolloutPolicy.TACTICAL;
+            default:
+                throw new IllegalArgumentException("Unknown rollout policy " + name);
+        }
+    }
+
+    // Plays up to numMoves random moves from the empty board, stopping early when the game ends
+    private static BitBoard playRandomly(int dimensions, int numMoves, Rng random) {
+        BitBoard board = new BitBoard(dimensions);
+        int[] moves = new int[board.numCells];
+        int player = BitBoard.MAX;
+        for (int i = 0; i < numMoves && board.evaluate() == BitBoard.NOT_OVER; i++) {
+            board.play(moves[random.nextInt(board.getMoves(moves))], player);
+            player = -player;
+        }
+        return board;
+    }
+}
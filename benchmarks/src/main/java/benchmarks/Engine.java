@@ -0,0 +1,29 @@
+package benchmarks;
+
+import java.util.function.IntSupplier;
+
+// Workloads of the engine, which lives in the default package and cannot be imported from here.
+// Each supplier runs one operation per call and returns a value so the work cannot be optimized away
+public interface Engine {
+
+    // Evaluates the next of a fixed set of random positions
+    IntSupplier evaluate(int dimensions);
+
+    // Solves a fixed position with the given number of stones to the end, starting from an empty transposition table
+    IntSupplier solve(int dimensions, int stones);
+
+    // Runs a fresh single threaded MCTS search of the given number of iterations from the empty board,
+    // with playouts by the named rollout policy, random or tactical
+    IntSupplier mcts(int dimensions, int iterations, String policy);
+
+    // Plays one game from the empty board by the named rollout policy
+    IntSupplier rollout(int dimensions, String policy);
+
+    static Engine load() {
+        try {
+            return (Engine) Class.forName("EngineAdapter").getConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("EngineAdapter is missing from the classpath", e);
+        }
+    }
+}
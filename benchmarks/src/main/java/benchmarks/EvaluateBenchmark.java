@@ -0,0 +1,34 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EvaluateBenchmark {
+
+    @Param({"2", "3"})
+    public int dimensions;
+
+    private IntSupplier evaluate;
+
+    @Setup
+    public void setUp() {
+        evaluate = Engine.load().evaluate(dimensions);
+    }
+
+    @Benchmark
+    public int evaluate() {
+        return evaluate.getAsInt();
+    }
+}
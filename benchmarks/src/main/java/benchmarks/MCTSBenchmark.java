@@ -0,0 +1,50 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// MCTS iterations and rollouts per second from the empty board, for each rollout policy
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class MCTSBenchmark {
+
+    private static final int ITERATIONS = 10000;
+
+    @Param({"2", "3"})
+    public int dimensions;
+
+    @Param({"random", "tactical"})
+    public String policy;
+
+    private IntSupplier search;
+    private IntSupplier rollout;
+
+    @Setup
+    public void setUp() {
+        Engine engine = Engine.load();
+        search = engine.mcts(dimensions, ITERATIONS, policy);
+        rollout = engine.rollout(dimensions, policy);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITERATIONS)
+    public int iterations() {
+        return search.getAsInt();
+    }
+
+    @Benchmark
+    public int rollouts() {
+        return rollout.getAsInt();
+    }
+}
@@ -0,0 +1,37 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntSupplier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Time to solve the empty 3x3 board and fixed mid-game positions to the end
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MinimaxBenchmark {
+
+    // dimensions:stones already on the board
+    @Param({"2:0", "2:2", "3:4", "3:6"})
+    public String position;
+
+    private IntSupplier solve;
+
+    @Setup
+    public void setUp() {
+        String[] parts = position.split(":");
+        solve = Engine.load().solve(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+    }
+
+    @Benchmark
+    public int solve() {
+        return solve.getAsInt();
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Minimax over many positions in one call, for example every position of a set of game records. Positions that are
+// rotations or reflections of each other are searched once, and the answer moved to the others through the symmetry.
+// Searches of the same board shape share one transposition table, and the distinct positions are spread over threads
+class BatchSearch {
+
+    private BatchSearch() {
+    }
+
+    // Returns {best cell, score for MAX} of each position for the player to move, MAX when the number of stones is even,
+    // the same as Minimax.search gives. A position that is over gets cell -1 and its result times WIN_SCORE.
+    // Positions may have different shapes, each shape gets a table of 2^tableBits entries
+    static int[][] search(BitBoard[] positions, Budget budget, int numThreads, int tableBits) throws Exception {
+        int[][] results = new int[positions.length][];
+
+        // Index of the first position each position is a rotation or reflection of, and the symmetry between them
+        int[] representatives = new int[positions.length];
+        int[] symmetries = new int[positions.length];
+        List<Integer> distinct = new ArrayList<>();
+        Map<Long, Integer> firstByKey = new HashMap<>();
+        for (int i = 0; i < positions.length; i++) {
+            BitBoard position = positions[i];
+            if (position.evaluate() != BitBoard.NOT_OVER) {
+                results[i] = new int[]{-1, position.evaluate() * Minimax.WIN_SCORE};
+                continue;
+            }
+
+            Integer first = firstByKey.putIfAbsent(position.getCanonicalKey(nextPlayer(position)), i);
+            int symmetry = first == null ? -1 : positions[first].findSymmetry(position);
+            if (symmetry < 0) {
+                // A new position, or a key shared with another shape or by a collision that is then searched apart
+                representatives[i] = i;
+                distinct.add(i);
+            } else {
+                representatives[i] = first;
+                symmetries[i] = symmetry;
+            }
+        }
+
+        // Fewest stones first, the longest searches start before the short ones fill the gaps
+        Integer[] order = distinct.toArray(new Integer[0]);
+        Arrays.sort(order, (a, b) -> Integer.compare(positions[a].numStones, positions[b].numStones));
+
+        Map<String, TranspositionTable> tables = new HashMap<>();
+        for (int index : order) {
+            tables.computeIfAbsent(shapeOf(positions[index]), shape -> new TranspositionTable(tableBits));
+        }
+
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                workers.add(pool.submit(() -> {
+                    for (int n = next.getAndIncrement(); n < order.length; n = next.getAndIncrement()) {
+                        BitBoard position = positions[order[n]];
+                        TranspositionTable table = tables.get(shapeOf(position));
+                        results[order[n]] = Minimax.search(position, nextPlayer(position), table, budget);
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int i = 0; i < positions.length; i++) {
+            int representative = representatives[i];
+            if (results[i] != null || results[representative] == null) continue;
+
+            int[] result = results[representative];
+            results[i] = new int[]{positions[representative].transform(result[0], symmetries[i]), result[1]};
+        }
+        return results;
+    }
+
+    private static String shapeOf(BitBoard board) {
+        return board.dimensions + " " + board.size + " " + board.length;
+    }
+
+    private static int nextPlayer(BitBoard board) {
+        return board.numStones % 2 == 0 ? BitBoard.MAX : BitBoard.MIN;
+    }
+}
@@ -0,0 +1,612 @@
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Board of a k-in-a-row game on a cube of any number of dimensions, for example
+// BitBoard(2) for tic-tac-toe, BitBoard(2, 15, 5) for gomoku or BitBoard(3, 4, 4) for Qubic
+class BitBoard {
+
+    static final int MAX = 1;
+    static final int EMPTY = 0;
+    static final int MIN = -1;
+
+    static final int NOT_OVER = -2;
+    static final int DRAW = 0;
+
+    static final int SIZE = 3;
+
+    // Cells are stored as short in the search tree
+    static final int MAX_CELLS = Short.MAX_VALUE;
+
+    // Most cells over every rotation and reflection of a board, which the symmetry table and both key tables
+    // hold one entry for each
+    private static final int MAX_SYMMETRY_CELLS = 1 << 22;
+
+    // Largest chunk key table of a board shape, larger boards hash stone by stone
+    private static final int MAX_CHUNK_KEYS = 1 << 17;
+
+    // Tables shared by every board of the same shape, keyed by dimensions, size and length. Only the most recently
+    // used shapes stay cached, boards of an evicted shape keep their tables and new ones get a fresh copy
+    private static final int MAX_GEOMETRIES = 16;
+    private static final Map<Long, Geometry> GEOMETRIES = new LinkedHashMap<Long, Geometry>(32, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Geometry> eldest) {
+            return size() > MAX_GEOMETRIES;
+        }
+    };
+
+    final int dimensions;
+    final int size;
+    final int length;
+    final int numCells;
+    final int numLines;
+    private final Geometry geometry;
+
+    // Stones of each player, bit (i & 63) of word (i >>> 6) set means cell i is taken
+    final long[] maxStones;
+    final long[] minStones;
+    int numStones;
+
+    // Scratch space of getCanonicalKey, one hash per symmetry
+    private final long[] hashes;
+    // Symmetry that turned the position last passed to getCanonicalKey into the one its key stands for
+    private int canonicalSymmetry;
+
+    BitBoard(int dimensions) {
+        this(dimensions, SIZE, SIZE);
+    }
+
+    // Board with size cells along each of the dimensions, won by length stones in a row
+    BitBoard(int dimensions, int size, int length) {
+        this(geometry(dimensions, size, length));
+    }
+
+    private BitBoard(Geometry geometry) {
+        this.geometry = geometry;
+        this.dimensions = geometry.dimensions;
+        this.size = geometry.size;
+        this.length = geometry.length;
+        this.numCells = geometry.numCells;
+        this.numLines = geometry.lineStarts.length - 1;
+        this.maxStones = new long[geometry.full.length];
+        this.minStones = new long[geometry.full.length];
+        this.hashes = new long[geometry.numSymmetries];
+    }
+
+    private static Geometry geometry(int dimensions, int size, int length) {
+        if (dimensions < 1 || size < 1 || length < 1 || length > size) {
+            throw new IllegalArgumentException("No " + length + " in a row on a board of size " + size);
+        }
+        if (Math.pow(size, dimensions) > MAX_CELLS) {
+            throw new IllegalArgumentException("Board has more than " + MAX_CELLS + " cells");
+        }
+        double symmetryCells = Math.pow(size, dimensions);
+        for (int d = 1; d <= dimensions && symmetryCells <= MAX_SYMMETRY_CELLS; d++) {
+            symmetryCells *= 2 * d;
+        }
+        if (symmetryCells > MAX_SYMMETRY_CELLS) {
+            throw new IllegalArgumentException("Board has more than " + MAX_SYMMETRY_CELLS
+                    + " cells over all its rotations and reflections");
+        }
+        long key = (long) dimensions << 40 | (long) size << 20 | length;
+        synchronized (GEOMETRIES) {
+            return GEOMETRIES.computeIfAbsent(key, k -> new Geometry(dimensions, size, length));
+        }
+    }
+
+    BitBoard copy() {
+        BitBoard result = new BitBoard(geometry);
+        result.load(this);
+        return result;
+    }
+
+    // Takes over the position of a board of the same shape
+    void load(BitBoard other) {
+        System.arraycopy(other.maxStones, 0, maxStones, 0, maxStones.length);
+        System.arraycopy(other.minStones, 0, minStones, 0, minStones.length);
+        numStones = other.numStones;
+    }
+
+    boolean isSamePosition(BitBoard other) {
+        return Arrays.equals(maxStones, other.maxStones) && Arrays.equals(minStones, other.minStones);
+    }
+
+    // Symmetry that turns this position into other, for transform, or -1 when other is not a rotation
+    // or reflection of it or has another shape
+    int findSymmetry(BitBoard other) {
+        if (other.dimensions != dimensions || other.size != size || other.length != length
+                || other.numStones != numStones) {
+            return -1;
+        }
+
+        for (int symmetry = 0; symmetry < geometry.numSymmetries; symmetry++) {
+            int[] image = geometry.symmetries[symmetry];
+            int cell = 0;
+            while (cell < numCells && get(cell) == other.get(image[cell])) {
+                cell++;
+            }
+            if (cell == numCells) return symmetry;
+        }
+        return -1;
+    }
+
+    // Cell that cell becomes under a symmetry found by findSymmetry or canonicalSymmetry
+    int transform(int cell, int symmetry) {
+        return geometry.symmetries[symmetry][cell];
+    }
+
+    // Cell that becomes cell under the symmetry, the inverse of transform
+    int untransform(int cell, int symmetry) {
+        int[] image = geometry.symmetries[symmetry];
+        for (int source = 0; source < numCells; source++) {
+            if (image[source] == cell) return source;
+        }
+        throw new IllegalArgumentException("No cell " + cell);
+    }
+
+    // Symmetry behind the key getCanonicalKey returned last, for storing cells in the frame of that key
+    int canonicalSymmetry() {
+        return canonicalSymmetry;
+    }
+
+    void clear() {
+        Arrays.fill(maxStones, 0);
+        Arrays.fill(minStones, 0);
+        numStones = 0;
+    }
+
+    void play(int cell, int player) {
+        if (player == MAX) {
+            maxStones[cell >>> 6] |= 1L << cell;
+        } else {
+            minStones[cell >>> 6] |= 1L << cell;
+        }
+        numStones++;
+    }
+
+    void undo(int cell, int player) {
+        if (player == MAX) {
+            maxStones[cell >>> 6] &= ~(1L << cell);
+        } else {
+            minStones[cell >>> 6] &= ~(1L << cell);
+        }
+        numStones--;
+    }
+
+    int get(int cell) {
+        if ((maxStones[cell >>> 6] >>> cell & 1) != 0) return MAX;
+        if ((minStones[cell >>> 6] >>> cell & 1) != 0) return MIN;
+        return EMPTY;
+    }
+
+    // Write the index of every empty cell into moves and return how many were written
+    int getMoves(int[] moves) {
+        long[] full = geometry.full;
+        int count = 0;
+        for (int word = 0; word < full.length; word++) {
+            for (long empty = full[word] & ~(maxStones[word] | minStones[word]); empty != 0; empty &= empty - 1) {
+                moves[count++] = word << 6 | Long.numberOfTrailingZeros(empty);
+            }
+        }
+        return count;
+    }
+
+    int evaluate() {
+        if (geometry.isSingleWord) {
+            long max = maxStones[0];
+            long min = minStones[0];
+            for (long line : geometry.lineMasks) {
+                if ((max & line) == line) return MAX;
+                if ((min & line) == line) return MIN;
+            }
+            return numStones == numCells ? DRAW : NOT_OVER;
+        }
+
+        for (int line = 0; line < numLines; line++) {
+            if (isComplete(line, maxStones)) return MAX;
+            if (isComplete(line, minStones)) return MIN;
+        }
+
+        // Check if game is a draw
+        if (numStones == numCells) return DRAW;
+
+        return NOT_OVER;
+    }
+
+    // Same result as evaluate() for a position that was not over before cell was played,
+    // only the lines through cell can have been completed
+    int evaluate(int cell) {
+        int player = get(cell);
+        long[] stones = player == MAX ? maxStones : minStones;
+        for (int line : geometry.cellLines[cell]) {
+            if (isComplete(line, stones)) return player;
+        }
+
+        if (numStones == numCells) return DRAW;
+
+        return NOT_OVER;
+    }
+
+    private boolean isComplete(int line, long[] stones) {
+        if (geometry.isSingleWord) {
+            long mask = geometry.lineMasks[line];
+            return (stones[0] & mask) == mask;
+        }
+
+        int[] words = geometry.lineWords;
+        long[] masks = geometry.lineMasks;
+        for (int i = geometry.lineStarts[line]; i < geometry.lineStarts[line + 1]; i++) {
+            if ((stones[words[i]] & masks[i]) != masks[i]) return false;
+        }
+        return true;
+    }
+
+    // Every cell from the center of the board outwards, shared by every board of the shape so it must not be changed
+    int[] getCellsFromCenter() {
+        return geometry.cellsFromCenter;
+    }
+
+    // Lines through cell that do not hold stones of both players, so one of them can still complete it
+    int countOpenLines(int cell) {
+        int count = 0;
+        for (int line : geometry.cellLines[cell]) {
+            if (!hasStones(line, maxStones) || !hasStones(line, minStones)) count++;
+        }
+        return count;
+    }
+
+    private boolean hasStones(int line, long[] stones) {
+        if (geometry.isSingleWord) return (stones[0] & geometry.lineMasks[line]) != 0;
+
+        int[] words = geometry.lineWords;
+        long[] masks = geometry.lineMasks;
+        for (int i = geometry.lineStarts[line]; i < geometry.lineStarts[line + 1]; i++) {
+            if ((stones[words[i]] & masks[i]) != 0) return true;
+        }
+        return false;
+    }
+
+    // Empty cell that completes a line of player's through cell, or -1 when no such line is one stone short
+    int findCompletingCell(int cell, int player) {
+        for (int line : geometry.cellLines[cell]) {
+            if (isOneShort(line, player)) return findEmptyCell(line);
+        }
+        return -1;
+    }
+
+    // Same over every line of the board
+    int findCompletingCell(int player) {
+        for (int line = 0; line < numLines; line++) {
+            if (isOneShort(line, player)) return findEmptyCell(line);
+        }
+        return -1;
+    }
+
+    private boolean isOneShort(int line, int player) {
+        return countStones(line, player) == length - 1 && countStones(line, -player) == 0;
+    }
+
+    private int findEmptyCell(int line) {
+        int[] words = geometry.lineWords;
+        long[] masks = geometry.lineMasks;
+        for (int i = geometry.lineStarts[line]; i < geometry.lineStarts[line + 1]; i++) {
+            long empty = masks[i] & ~(maxStones[words[i]] | minStones[words[i]]);
+            if (empty != 0) return words[i] << 6 | Long.numberOfTrailingZeros(empty);
+        }
+        return -1;
+    }
+
+    // Number of stones player has on the line, lines are numbered from 0 to numLines - 1
+    int countStones(int line, int player) {
+        long[] stones = player == MAX ? maxStones : minStones;
+        if (geometry.isSingleWord) return Long.bitCount(stones[0] & geometry.lineMasks[line]);
+
+        int[] words = geometry.lineWords;
+        long[] masks = geometry.lineMasks;
+        int count = 0;
+        for (int i = geometry.lineStarts[line]; i < geometry.lineStarts[line + 1]; i++) {
+            count += Long.bitCount(stones[words[i]] & masks[i]);
+        }
+        return count;
+    }
+
+    // Same key for every rotation and reflection of the position, with the player to move in the lowest bit.
+    // Keys are Zobrist hashes, different positions share a key only by a 63 bit collision
+    long getCanonicalKey(int player) {
+        Arrays.fill(hashes, 0);
+        if (geometry.maxChunkKeys != null) {
+            hashChunks(maxStones, geometry.maxChunkKeys);
+            hashChunks(minStones, geometry.minChunkKeys);
+        } else {
+            hash(maxStones, geometry.maxKeys);
+            hash(minStones, geometry.minKeys);
+        }
+
+        long best = Long.MAX_VALUE;
+        for (int symmetry = 0; symmetry < hashes.length; symmetry++) {
+            if (hashes[symmetry] < best) {
+                best = hashes[symmetry];
+                canonicalSymmetry = symmetry;
+            }
+        }
+        return best << 1 | (player == MAX ? 1 : 0);
+    }
+
+    private void hash(long[] stones, long[] keys) {
+        int numSymmetries = hashes.length;
+        for (int word = 0; word < stones.length; word++) {
+            for (long bits = stones[word]; bits != 0; bits &= bits - 1) {
+                int offset = (word << 6 | Long.numberOfTrailingZeros(bits)) * numSymmetries;
+                for (int symmetry = 0; symmetry < numSymmetries; symmetry++) {
+                    hashes[symmetry] ^= keys[offset + symmetry];
+                }
+            }
+        }
+    }
+
+    // Same as hash, eight cells at a time
+    private void hashChunks(long[] stones, long[] keys) {
+        int numSymmetries = hashes.length;
+        for (int word = 0; word < stones.length; word++) {
+            int chunk = word << 3;
+            for (long bits = stones[word]; bits != 0; bits >>>= 8, chunk++) {
+                int offset = (chunk << 8 | (int) bits & 0xFF) * numSymmetries;
+                for (int symmetry = 0; symmetry < numSymmetries; symmetry++) {
+                    hashes[symmetry] ^= keys[offset + symmetry];
+                }
+            }
+        }
+    }
+
+    // Lookup tables of one board shape, built once and never changed
+    private static final class Geometry {
+
+        final int dimensions;
+        final int size;
+        final int length;
+        final int numCells;
+
+        // Valid cells of each word of a stone mask
+        final long[] full;
+        // Boards of up to 64 cells have one mask per line and skip the word lookups
+        final boolean isSingleWord;
+
+        // Line l is the cells of the masks lineMasks[i] over words lineWords[i], lineStarts[l] <= i < lineStarts[l + 1]
+        final int[] lineStarts;
+        final int[] lineWords;
+        final long[] lineMasks;
+
+        // Lines through each cell
+        final int[][] cellLines;
+
+        // Every cell from the center outwards, by the sum of the distances to the center along each dimension
+        final int[] cellsFromCenter;
+
+        // Image of cell c under symmetry s at symmetries[s][c], rotations and reflections of the board
+        final int[][] symmetries;
+
+        // Zobrist key of a stone on cell c seen through symmetry s at index c * numSymmetries + s
+        final int numSymmetries;
+        final long[] maxKeys;
+        final long[] minKeys;
+
+        // Combined keys of the stones on the eight cells of chunk c given by byte b, at index (c * 256 + b) * numSymmetries + s.
+        // Null for boards where the tables would hold more than MAX_CHUNK_KEYS keys
+        final long[] maxChunkKeys;
+        final long[] minChunkKeys;
+
+        Geometry(int dimensions, int size, int length) {
+            this.dimensions = dimensions;
+            this.size = size;
+            this.length = length;
+            this.numCells = pow(size, dimensions);
+
+            full = new long[(numCells + 63) >>> 6];
+            for (int cell = 0; cell < numCells; cell++) {
+                full[cell >>> 6] |= 1L << cell;
+            }
+            isSingleWord = full.length == 1;
+
+            int[][] lines = createLines();
+            lineStarts = new int[lines.length + 1];
+            int numSegments = 0;
+            for (int l = 0; l < lines.length; l++) {
+                lineStarts[l] = numSegments;
+                numSegments += countWords(lines[l]);
+            }
+            lineStarts[lines.length] = numSegments;
+            lineWords = new int[numSegments];
+            lineMasks = new long[numSegments];
+            for (int l = 0; l < lines.length; l++) {
+                // Cells of a line are increasing, so the cells of one word are consecutive
+                int segment = lineStarts[l] - 1;
+                int lastWord = -1;
+                for (int cell : lines[l]) {
+                    if (cell >>> 6 != lastWord) {
+                        lastWord = cell >>> 6;
+                        lineWords[++segment] = lastWord;
+                    }
+                    lineMasks[segment] |= 1L << cell;
+                }
+            }
+
+            cellLines = new int[numCells][];
+            int[] numCellLines = new int[numCells];
+            for (int[] line : lines) {
+                for (int cell : line) {
+                    numCellLines[cell]++;
+                }
+            }
+            for (int cell = 0; cell < numCells; cell++) {
+                cellLines[cell] = new int[numCellLines[cell]];
+                numCellLines[cell] = 0;
+            }
+            for (int l = 0; l < lines.length; l++) {
+                for (int cell : lines[l]) {
+                    cellLines[cell][numCellLines[cell]++] = l;
+                }
+            }
+
+            long[] byDistance = new long[numCells];
+            for (int cell = 0; cell < numCells; cell++) {
+                long distance = 0;
+                for (int d = 0, rest = cell; d < dimensions; d++, rest /= size) {
+                    distance += Math.abs(2 * (rest % size) - (size - 1));
+                }
+                byDistance[cell] = distance << 32 | cell;
+            }
+            Arrays.sort(byDistance);
+            cellsFromCenter = new int[numCells];
+            for (int i = 0; i < numCells; i++) {
+                cellsFromCenter[i] = (int) byDistance[i];
+            }
+
+            symmetries = createSymmetries();
+            numSymmetries = symmetries.length;
+            maxKeys = new long[numCells * numSymmetries];
+            minKeys = new long[numCells * numSymmetries];
+            SplittableRandom random = new SplittableRandom(0x5DEECE66DL);
+            long[] maxCellKeys = new long[numCells];
+            long[] minCellKeys = new long[numCells];
+            for (int cell = 0; cell < numCells; cell++) {
+                maxCellKeys[cell] = random.nextLong();
+                minCellKeys[cell] = random.nextLong();
+            }
+            for (int cell = 0; cell < numCells; cell++) {
+                for (int s = 0; s < numSymmetries; s++) {
+                    maxKeys[cell * numSymmetries + s] = maxCellKeys[symmetries[s][cell]];
+                    minKeys[cell * numSymmetries + s] = minCellKeys[symmetries[s][cell]];
+                }
+            }
+
+            boolean useChunks = (long) ((numCells + 7) >>> 3) * 256 * numSymmetries <= MAX_CHUNK_KEYS;
+            maxChunkKeys = useChunks ? createChunkKeys(maxKeys) : null;
+            minChunkKeys = useChunks ? createChunkKeys(minKeys) : null;
+        }
+
+        private long[] createChunkKeys(long[] keys) {
+            int numChunks = (numCells + 7) >>> 3;
+            long[] result = new long[numChunks * 256 * numSymmetries];
+            for (int chunk = 0; chunk < numChunks; chunk++) {
+                for (int bits = 1; bits < 256; bits++) {
+                    // Keys of the lowest stone added to the keys of the others
+                    int cell = chunk << 3 | Integer.numberOfTrailingZeros(bits);
+                    int offset = (chunk << 8 | bits) * numSymmetries;
+                    int rest = (chunk << 8 | bits & bits - 1) * numSymmetries;
+                    for (int s = 0; s < numSymmetries; s++) {
+                        long key = cell < numCells ? keys[cell * numSymmetries + s] : 0;
+                        result[offset + s] = result[rest + s] ^ key;
+                    }
+                }
+            }
+            return result;
+        }
+
+        private static int countWords(int[] line) {
+            int count = 0;
+            int lastWord = -1;
+            for (int cell : line) {
+                if (cell >>> 6 != lastWord) {
+                    lastWord = cell >>> 6;
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        // Every straight run of length cells through the cube, as the cells along it (i * size^2 + j * size + k in 3D)
+        private int[][] createLines() {
+            int numDirections = pow(3, dimensions);
+
+            int[][] result = new int[numCells * numDirections][];
+            int count = 0;
+            int[] start = new int[dimensions];
+            int[] direction = new int[dimensions];
+            for (int dir = 0; dir < numDirections; dir++) {
+                // Direction components in {-1, 0, 1}, keep only one of each opposite pair
+                int firstNonZero = 0;
+                for (int d = 0, code = dir; d < dimensions; d++, code /= 3) {
+                    direction[d] = code % 3 - 1;
+                    if (firstNonZero == 0) firstNonZero = direction[d];
+                }
+                if (firstNonZero != 1) continue;
+
+                for (int cell = 0; cell < numCells; cell++) {
+                    for (int d = dimensions - 1, code = cell; d >= 0; d--, code /= size) {
+                        start[d] = code % size;
+                    }
+
+                    int[] line = new int[length];
+                    for (int step = 0; step < length && line != null; step++) {
+                        int index = 0;
+                        for (int d = 0; d < dimensions; d++) {
+                            int coordinate = start[d] + step * direction[d];
+                            if (coordinate < 0 || coordinate >= size) {
+                                index = -1;
+                                break;
+                            }
+                            index = index * size + coordinate;
+                        }
+                        if (index < 0) {
+                            line = null;
+                        } else {
+                            line[step] = index;
+                        }
+                    }
+                    if (line != null) result[count++] = line;
+                }
+            }
+
+            return Arrays.copyOf(result, count);
+        }
+
+        // Image of every cell under each rotation or reflection of the cube (axis permutation times axis flips)
+        private int[][] createSymmetries() {
+            int numPermutations = 1;
+            for (int d = 0; d < dimensions; d++) {
+                numPermutations *= d + 1;
+            }
+
+            int[][] result = new int[numPermutations << dimensions][numCells];
+            int count = 0;
+            int[] axes = new int[dimensions];
+            int[] coordinates = new int[dimensions];
+            for (int code = 0; code < pow(dimensions, dimensions); code++) {
+                // Decode code as a base dimensions number and keep it only if it is a permutation
+                int used = 0;
+                for (int d = 0, rest = code; d < dimensions; d++, rest /= dimensions) {
+                    axes[d] = rest % dimensions;
+                    used |= 1 << axes[d];
+                }
+                if (used != (1 << dimensions) - 1) continue;
+
+                for (int flips = 0; flips < 1 << dimensions; flips++) {
+                    int[] symmetry = result[count++];
+                    for (int cell = 0; cell < numCells; cell++) {
+                        for (int d = dimensions - 1, rest = cell; d >= 0; d--, rest /= size) {
+                            coordinates[d] = rest % size;
+                        }
+                        int image = 0;
+                        for (int d = 0; d < dimensions; d++) {
+                            int coordinate = coordinates[axes[d]];
+                            if ((flips >>> d & 1) != 0) coordinate = size - 1 - coordinate;
+                            image = image * size + coordinate;
+                        }
+                        symmetry[cell] = image;
+                    }
+                }
+            }
+
+            return result;
+        }
+    }
+
+    private static int pow(int base, int exponent) {
+        int result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= base;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,38 @@
+// Limits for one search, any limit left UNLIMITED is ignored
+class Budget {
+
+    static final long UNLIMITED = Long.MAX_VALUE;
+
+    long timeMillis = UNLIMITED;
+    long iterations = UNLIMITED; // Root visits for MCTS (kept from earlier moves too), deepening steps for minimax
+    long nodes = UNLIMITED; // Tree size for MCTS, visited positions for minimax
+
+    static Budget unlimited() {
+        return new Budget();
+    }
+
+    Budget time(long millis) {
+        timeMillis = millis;
+        return this;
+    }
+
+    Budget iterations(long count) {
+        iterations = count;
+        return this;
+    }
+
+    Budget nodes(long count) {
+        nodes = count;
+        return this;
+    }
+
+    boolean isUnlimited() {
+        return timeMillis == UNLIMITED && iterations == UNLIMITED && nodes == UNLIMITED;
+    }
+
+    // System.nanoTime() value at which a search started at start has to stop
+    long deadline(long start) {
+        if (timeMillis == UNLIMITED) return Long.MAX_VALUE;
+        return start + timeMillis * 1000000L;
+    }
+}
@@ -0,0 +1,361 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Serves MCTS moves for many games at once over TCP. One selector thread does all the socket work without blocking
+// and hands searches to a fixed pool of searcher threads behind a bounded queue. Requests are lines of text,
+// answered by one line each, one request at a time per connection:
+//   NEW <dimensions> <size> <length>  starts a game, answers OK <session>. The game ends with its connection
+//   PLAY <session> <cell> <millis>    plays the opponent's cell, -1 for none, then answers MOVE <cell> <result>
+//                                     with the engine's reply found within millis of the request arriving,
+//                                     or OVER <result> when the opponent's move ended the game. millis must be
+//                                     at least MIN_SEARCH_MILLIS
+//   CLOSE <session>                   ends a game, answers OK
+//   STATS                             answers STATS <sessions> <requests> <rejected>
+// Results are BitBoard values, NOT_OVER while the game goes on. A PLAY is answered BUSY at once when the queue is
+// full, and without playing anything when it waited so long that less than MIN_SEARCH_MILLIS are left. Either way
+// it can be sent again later. Bad requests are answered ERROR <reason>. Given a report file, every engine move
+// appends a SearchReport line to it
+public class EngineServer {
+
+    private static final int NOT_OVER = BitBoard.NOT_OVER;
+
+    // Longest request line, a connection sending a longer one is closed
+    private static final int MAX_LINE = 256;
+
+    // Largest board a client can ask for, every session holds the tables of its shape
+    private static final int MAX_DIMENSIONS = 4;
+    private static final int MAX_SESSION_CELLS = 1024;
+
+    // Shortest search worth running, a move found in less is little better than a random one
+    private static final long MIN_SEARCH_MILLIS = 5;
+
+    // One game, its tree kept from move to move. Requests for it are served one at a time
+    private static final class Session {
+        final long id;
+        final BitBoard board;
+        final MCTS tree;
+
+        Session(long id, BitBoard board, int capacity) {
+            this.id = id;
+            this.board = board;
+            this.tree = new MCTS(capacity);
+            tree.setEviction(true);
+        }
+    }
+
+    // State of a connection, only touched by the selector thread apart from the response of a search
+    private static final class Connection {
+        final SocketChannel channel;
+        final ByteBuffer input = ByteBuffer.allocate(MAX_LINE);
+        final Set<Long> sessions = new HashSet<>(); // Started here and not closed yet, dropped with the connection
+        ByteBuffer output; // Response being written, null when there is none
+        boolean isSearching;
+        volatile String result; // Set by the searcher before the connection is queued as finished
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private final ServerSocketChannel server;
+    private final Selector selector;
+    private final ThreadPoolExecutor searchers;
+    private final int maxSessions;
+    private final int capacity;
+    private final SearchReport report; // Null when moves are not reported
+
+    private final ConcurrentHashMap<Long, Session> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong nextSession = new AtomicLong(1);
+    private final Queue<Connection> finished = new ConcurrentLinkedQueue<>();
+
+    private long numRequests;
+    private long numRejected;
+
+    // numThreads searches run at once and queueSize more wait, every session's trees fit in megabytes
+    EngineServer(int port, int numThreads, int queueSize, int maxSessions, long megabytes, SearchReport report)
+            throws IOException {
+        this.maxSessions = maxSessions;
+        this.report = report;
+        this.capacity = MCTS.capacityFor(megabytes << 20);
+        this.searchers = new ThreadPoolExecutor(numThreads, numThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize));
+        this.selector = Selector.open();
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(port));
+        server.configureBlocking(false);
+        server.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    void run() throws IOException {
+        while (true) {
+            selector.select();
+
+            for (Connection connection = finished.poll(); connection != null; connection = finished.poll()) {
+                connection.isSearching = false;
+                if (connection.result.equals("BUSY")) numRejected++;
+                if (!connection.channel.isOpen()) continue;
+                respond(connection, connection.result);
+                try {
+                    process(connection);
+                } catch (IOException e) {
+                    close(connection);
+                }
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                try {
+                    if (!key.isValid()) continue;
+                    if (key.isAcceptable()) {
+                        accept();
+                    } else {
+                        Connection connection = (Connection) key.attachment();
+                        if (key.isReadable() && connection.channel.read(connection.input) < 0) {
+                            close(connection);
+                            continue;
+                        }
+                        if (key.isWritable()) write(connection);
+                        process(connection);
+                    }
+                } catch (IOException e) {
+                    if (key.attachment() != null) close((Connection) key.attachment());
+                }
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null) return;
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, new Connection(channel));
+    }
+
+    private void write(Connection connection) throws IOException {
+        connection.channel.write(connection.output);
+        if (!connection.output.hasRemaining()) connection.output = null;
+    }
+
+    private void close(Connection connection) {
+        for (Long id : connection.sessions) {
+            sessions.remove(id);
+        }
+        connection.sessions.clear();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+            // Nothing left to do with the connection
+        }
+    }
+
+    // Serves the buffered requests until one is waiting for a search or a response is still being written,
+    // then reads only when the connection can take another request, which holds back clients that send faster
+    // than they are served
+    private void process(Connection connection) throws IOException {
+        while (connection.output == null && !connection.isSearching) {
+            String line = nextLine(connection.input);
+            if (line == null) {
+                if (!connection.input.hasRemaining()) {
+                    close(connection);
+                    return;
+                }
+                break;
+            }
+            handle(connection, line);
+            if (connection.output != null) write(connection);
+        }
+
+        SelectionKey key = connection.channel.keyFor(selector);
+        if (key == null || !key.isValid()) return;
+        int ops = connection.output != null ? SelectionKey.OP_WRITE : connection.isSearching ? 0 : SelectionKey.OP_READ;
+        key.interestOps(ops);
+    }
+
+    // Takes the first complete line out of the buffer, or returns null when there is none yet
+    private static String nextLine(ByteBuffer input) {
+        for (int i = 0; i < input.position(); i++) {
+            if (input.get(i) != '\n') continue;
+
+            byte[] bytes = new byte[i];
+            input.flip();
+            input.get(bytes);
+            input.get();
+            input.compact();
+            return new String(bytes, StandardCharsets.US_ASCII).trim();
+        }
+        return null;
+    }
+
+    private void respond(Connection connection, String response) {
+        connection.output = ByteBuffer.wrap((response + "\n").getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private void handle(Connection connection, String line) {
+        numRequests++;
+        String[] parts = line.split("\\s+");
+        try {
+            switch (parts[0]) {
+                case "NEW":
+                    respond(connection, newSession(connection, Integer.parseInt(parts[1]),
+                            Integer.parseInt(parts[2]), Integer.parseInt(parts[3])));
+                    break;
+                case "PLAY":
+                    search(connection, getSession(parts[1]), Integer.parseInt(parts[2]), Long.parseLong(parts[3]));
+                    break;
+                case "CLOSE":
+                    long id = Long.parseLong(parts[1]);
+                    sessions.remove(id);
+                    connection.sessions.remove(id);
+                    respond(connection, "OK");
+                    break;
+                case "STATS":
+                    respond(connection, "STATS " + sessions.size() + " " + numRequests + " " + numRejected);
+                    break;
+                default:
+                    respond(connection, "ERROR unknown request " + parts[0]);
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            respond(connection, "ERROR missing arguments in " + line);
+        } catch (IllegalArgumentException e) {
+            respond(connection, "ERROR " + e.getMessage());
+        } catch (RuntimeException e) {
+            // A request must never take the selector thread down with it
+            respond(connection, "ERROR " + e);
+        }
+    }
+
+    private String newSession(Connection connection, int dimensions, int size, int length) {
+        if (sessions.size() >= maxSessions) return "ERROR too many sessions";
+        if (dimensions < 1 || dimensions > MAX_DIMENSIONS || size < 1
+                || Math.pow(size, dimensions) > MAX_SESSION_CELLS) {
+            return "ERROR boards have 1 to " + MAX_DIMENSIONS + " dimensions and at most " + MAX_SESSION_CELLS
+                    + " cells";
+        }
+        if (length < 1 || length > size) return "ERROR rows to win must be 1 to " + size + " long";
+        BitBoard board = new BitBoard(dimensions, size, length);
+        long id = nextSession.getAndIncrement();
+        sessions.put(id, new Session(id, board, capacity));
+        connection.sessions.add(id);
+        return "OK " + id;
+    }
+
+    private Session getSession(String id) {
+        Session session = sessions.get(Long.parseLong(id));
+        if (session == null) throw new IllegalArgumentException("no session " + id);
+        return session;
+    }
+
+    private void search(Connection connection, Session session, int cell, long millis) {
+        if (millis < MIN_SEARCH_MILLIS) {
+            throw new IllegalArgumentException("moves need at least " + MIN_SEARCH_MILLIS + " ms");
+        }
+        long arrival = System.nanoTime();
+        connection.isSearching = true;
+        try {
+            searchers.execute(() -> {
+                String result;
+                try {
+                    result = play(session, cell, arrival, millis);
+                } catch (RuntimeException e) {
+                    result = "ERROR " + e.getMessage();
+                } catch (Throwable e) {
+                    // The connection waits for an answer whatever happened, errors included
+                    result = "ERROR search failed: " + e;
+                }
+                connection.result = result;
+                finished.add(connection);
+                selector.wakeup();
+            });
+        } catch (RejectedExecutionException e) {
+            connection.isSearching = false;
+            numRejected++;
+            respond(connection, "BUSY");
+        }
+    }
+
+    // Plays the opponent's cell unless it is negative, then the engine's best move found in what is left of
+    // millis after arrival. Answers BUSY before playing anything when too little is left for a search
+    private String play(Session session, int cell, long arrival, long millis) {
+        synchronized (session) {
+            millis -= (System.nanoTime() - arrival) / 1000000;
+            if (millis < MIN_SEARCH_MILLIS) return "BUSY";
+            BitBoard board = session.board;
+            if (cell >= 0) {
+                if (board.evaluate() != NOT_OVER) return "ERROR game is over";
+                if (cell >= board.numCells || board.get(cell) != BitBoard.EMPTY) return "ERROR illegal move " + cell;
+                board.play(cell, nextPlayer(board));
+                session.tree.advance(cell);
+            }
+
+            int result = board.evaluate();
+            if (result != NOT_OVER) return "OVER " + result;
+
+            int player = nextPlayer(board);
+            long start = System.nanoTime();
+            int move = session.tree.search(board, player, new Budget().time(millis), 1,
+                    MCTS.TREE_PARALLEL);
+            if (report != null) report(session, player, move, System.nanoTime() - start);
+            board.play(move, player);
+            session.tree.advance(move);
+            return "MOVE " + move + " " + board.evaluate(move);
+        }
+    }
+
+    // A report that cannot be written does not fail the move
+    private void report(Session session, int player, int move, long nanos) {
+        try {
+            report.write("server", session.id, "mcts", session.board, player, move, nanos, session.tree.stats());
+        } catch (IOException e) {
+            System.err.println("Cannot write the search report: " + e.getMessage());
+        }
+    }
+
+    private static int nextPlayer(BitBoard board) {
+        return board.numStones % 2 == 0 ? BitBoard.MAX : BitBoard.MIN;
+    }
+
+    // Port, searcher threads, queued searches, sessions, megabytes per session and report file, all optional
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 7878;
+        int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        int queueSize = args.length > 2 ? Integer.parseInt(args[2]) : 4 * numThreads;
+        int maxSessions = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        long megabytes = args.length > 4 ? Long.parseLong(args[4]) : 2;
+        SearchReport report = args.length > 5 ? new SearchReport(Paths.get(args[5])) : null;
+        if (report != null) {
+            // Buffered lines are written when the server is stopped
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    report.close();
+                } catch (IOException e) {
+                    System.err.println("Cannot write the search report: " + e.getMessage());
+                }
+            }));
+        }
+
+        EngineServer engineServer = new EngineServer(port, numThreads, queueSize, maxSessions, megabytes, report);
+        System.out.println("Serving on port " + port + " with " + numThreads + " searchers, " + queueSize
+                + " queued searches, up to " + maxSessions + " sessions of " + megabytes + " MB");
+        engineServer.run();
+    }
+}
@@ -0,0 +1,94 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// One finished game as stored by GameRecordWriter: the board shape as three shorts, the players, the seed of the run
+// and the result, then one byte per move, the cell index, or two on boards of more than 256 cells.
+// Reused from game to game by GameRecordReader, so the moves array may be longer than numMoves
+class GameRecord {
+
+    // Largest encoded game, seed, shape, result, number of moves, both players and the moves
+    static final int MAX_BYTES = 8 + 7 + 2 + 2 * 256 + 2 * BitBoard.MAX_CELLS;
+
+    int dimensions;
+    int size;
+    int length;
+    long seed;
+    int result; // BitBoard result of the last move
+    String first = ""; // Player that played MAX
+    String second = "";
+    int[] moves = new int[0];
+    int numMoves;
+
+    // Takes the moves array as it is, it must not change until the record is written
+    GameRecord set(BitBoard board, long seed, String first, String second, int[] moves, int numMoves) {
+        this.dimensions = board.dimensions;
+        this.size = board.size;
+        this.length = board.length;
+        this.seed = seed;
+        this.result = board.evaluate();
+        this.first = first;
+        this.second = second;
+        this.moves = moves;
+        this.numMoves = numMoves;
+        return this;
+    }
+
+    int numCells() {
+        int count = 1;
+        for (int d = 0; d < dimensions; d++) {
+            count *= size;
+        }
+        return count;
+    }
+
+    // Bytes encode writes, or a few more for player names with characters outside the BMP
+    int encodedBytes() {
+        int names = Math.min(first.length(), 255) + Math.min(second.length(), 255);
+        return 8 + 7 + 2 + 2 + names + numMoves * (numCells() > 256 ? 2 : 1);
+    }
+
+    void encode(ByteBuffer buffer) {
+        buffer.putLong(seed);
+        buffer.putShort((short) dimensions).putShort((short) size).putShort((short) length).put((byte) result);
+        buffer.putShort((short) numMoves);
+        putString(buffer, first);
+        putString(buffer, second);
+        boolean isWide = numCells() > 256;
+        for (int i = 0; i < numMoves; i++) {
+            if (isWide) {
+                buffer.putShort((short) moves[i]);
+            } else {
+                buffer.put((byte) moves[i]);
+            }
+        }
+    }
+
+    void decode(ByteBuffer buffer) {
+        seed = buffer.getLong();
+        dimensions = buffer.getShort() & 0xFFFF;
+        size = buffer.getShort() & 0xFFFF;
+        length = buffer.getShort() & 0xFFFF;
+        result = buffer.get();
+        numMoves = buffer.getShort() & 0xFFFF;
+        first = getString(buffer);
+        second = getString(buffer);
+        if (moves.length < numMoves) moves = new int[Math.max(numMoves, 2 * moves.length)];
+        boolean isWide = numCells() > 256;
+        for (int i = 0; i < numMoves; i++) {
+            moves[i] = isWide ? buffer.getShort() & 0xFFFF : buffer.get() & 0xFF;
+        }
+    }
+
+    // Player names are short and ASCII, at most 255 bytes
+    private static void putString(ByteBuffer buffer, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        int count = Math.min(bytes.length, 255);
+        buffer.put((byte) count).put(bytes, 0, count);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.get() & 0xFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,94 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Reads the games of a file written by GameRecordWriter one chunk at a time, in the order they were written.
+// Reading stops at the first chunk that is cut short or fails its checksum
+class GameRecordReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(GameRecordWriter.FRAME_HEADER_BYTES);
+    private final ByteBuffer chunk = ByteBuffer.allocate(GameRecordWriter.CHUNK_BYTES + 4);
+    private final CRC32 crc = new CRC32();
+    private int gamesLeft;
+    private boolean isDamaged;
+
+    GameRecordReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer fileHeader = ByteBuffer.allocate(GameRecordWriter.FILE_HEADER_BYTES);
+            if (channel.read(fileHeader, 0) < GameRecordWriter.FILE_HEADER_BYTES
+                    || fileHeader.getInt(0) != GameRecordWriter.MAGIC) {
+                throw new IOException(file + " holds no game records");
+            }
+            channel.position(GameRecordWriter.FILE_HEADER_BYTES);
+            if (fileHeader.getInt(4) != GameRecordWriter.VERSION) {
+                throw new IOException(file + " was written by another version");
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    // Decodes the next game into record, returns false after the last one
+    boolean next(GameRecord record) throws IOException {
+        while (gamesLeft == 0) {
+            if (!readChunk()) return false;
+        }
+        record.decode(chunk);
+        gamesLeft--;
+        return true;
+    }
+
+    // True when reading stopped at a damaged chunk rather than at the end of the file
+    boolean isDamaged() {
+        return isDamaged;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private boolean readChunk() throws IOException {
+        if (isDamaged) return false;
+        try {
+            header.clear();
+            if (channel.read(header) <= 0) return false;
+            readFully(header);
+
+            int payload = header.getInt(0);
+            if (payload < 0 || payload > GameRecordWriter.CHUNK_BYTES) {
+                isDamaged = true;
+                return false;
+            }
+            chunk.clear().limit(payload + 4);
+            readFully(chunk);
+
+            crc.reset();
+            crc.update(chunk.array(), 0, payload);
+            if ((int) crc.getValue() != chunk.getInt(payload)) {
+                isDamaged = true;
+                return false;
+            }
+            chunk.flip().limit(payload);
+            gamesLeft = header.getInt(4);
+            return true;
+        } catch (EOFException e) {
+            isDamaged = true;
+            return false;
+        }
+    }
+
+    private void readFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) throw new EOFException();
+        }
+    }
+}
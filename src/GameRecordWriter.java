@@ -0,0 +1,108 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+// Appends games to a record file, which starts with a magic number and a version and then holds framed chunks:
+// the length of the payload, the number of games in it, the payload of encoded games and its CRC32.
+// Games are buffered into a chunk that is written in one go once full, so a crash loses at most the last chunk,
+// and a chunk cut short by one is dropped when the file is opened again. Safe to share between threads
+class GameRecordWriter implements Closeable {
+
+    static final int MAGIC = 0x54545247;
+    static final int VERSION = 2; // 1 stored the board shape in bytes
+    static final int FILE_HEADER_BYTES = 8;
+    static final int FRAME_HEADER_BYTES = 8;
+
+    // Payload of one chunk, room for at least one game of any size
+    static final int CHUNK_BYTES = Math.max(1 << 16, GameRecord.MAX_BYTES);
+
+    private final FileChannel channel;
+    private final ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+    private final ByteBuffer chunk = ByteBuffer.allocate(CHUNK_BYTES);
+    private final ByteBuffer checksum = ByteBuffer.allocate(4);
+    private final CRC32 crc = new CRC32();
+    private int numGames;
+
+    GameRecordWriter(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                ByteBuffer fileHeader = ByteBuffer.allocate(FILE_HEADER_BYTES).putInt(MAGIC).putInt(VERSION);
+                fileHeader.flip();
+                writeFully(fileHeader, 0);
+            } else {
+                channel.truncate(findEnd(channel, file));
+            }
+            channel.position(channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    synchronized void write(GameRecord record) throws IOException {
+        if (chunk.remaining() < record.encodedBytes()) flush();
+        record.encode(chunk);
+        numGames++;
+    }
+
+    // Writes the buffered games as one chunk
+    synchronized void flush() throws IOException {
+        if (numGames == 0) return;
+
+        chunk.flip();
+        crc.reset();
+        crc.update(chunk.array(), 0, chunk.limit());
+        header.clear();
+        header.putInt(chunk.limit()).putInt(numGames).flip();
+        checksum.clear();
+        checksum.putInt((int) crc.getValue()).flip();
+        ByteBuffer[] frame = {header, chunk, checksum};
+        while (checksum.hasRemaining()) {
+            channel.write(frame);
+        }
+
+        chunk.clear();
+        numGames = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+    }
+
+    // Offset after the last whole chunk, found from the frame lengths without reading the payloads
+    private static long findEnd(FileChannel channel, Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FILE_HEADER_BYTES);
+        if (channel.read(buffer, 0) < FILE_HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(file + " holds no game records");
+        }
+        if (buffer.getInt(4) != VERSION) throw new IOException(file + " was written by another version");
+
+        long end = FILE_HEADER_BYTES;
+        long size = channel.size();
+        buffer = ByteBuffer.allocate(FRAME_HEADER_BYTES);
+        while (true) {
+            buffer.clear();
+            if (end + FRAME_HEADER_BYTES > size || channel.read(buffer, end) < FRAME_HEADER_BYTES) return end;
+            int payload = buffer.getInt(0);
+            long next = end + FRAME_HEADER_BYTES + payload + 4L;
+            if (payload < 0 || payload > CHUNK_BYTES || next > size) return end;
+            end = next;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+// Plays MCTS against itself on larger boards: gomoku by default, or the shape given as
+// dimensions, size and length, for example "2 5 4" for four in a row on 5x5 or "3 4 4" for Qubic.
+// Milliseconds per move and megabytes for the trees can follow, a tree that outgrows them drops its least visited nodes
+public class KInARow {
+
+    private static final int MAX = BitBoard.MAX;
+    private static final int MIN = BitBoard.MIN;
+    private static final int NOT_OVER = BitBoard.NOT_OVER;
+    private static final int DRAW = BitBoard.DRAW;
+
+    private static String printMark(int mark) {
+        if (mark == MAX) {
+            return "O";
+        } else if (mark == MIN) {
+            return "X";
+        } else {
+            return ".";
+        }
+    }
+
+    // Coordinates of a cell, most significant first
+    private static String printCell(BitBoard board, int cell) {
+        StringBuilder result = new StringBuilder();
+        for (int d = 0, rest = cell; d < board.dimensions; d++, rest /= board.size) {
+            if (d > 0) result.insert(0, ", ");
+            result.insert(0, rest % board.size);
+        }
+        return result.toString();
+    }
+
+    // Layers of more than two dimensions are printed one after the other
+    private static void printBoard(BitBoard board) {
+        int rowLength = board.dimensions == 1 ? board.numCells : board.size;
+        for (int cell = 0; cell < board.numCells; cell++) {
+            System.out.print(printMark(board.get(cell)));
+            if ((cell + 1) % rowLength == 0) System.out.println();
+            if (board.dimensions > 2 && (cell + 1) % (rowLength * board.size) == 0) System.out.println();
+        }
+    }
+
+    private static String printResult(int score) {
+        if (score == DRAW) return "DRAW";
+        return printMark(score) + " wins";
+    }
+
+    public static void main(String[] args) {
+        int dimensions = args.length > 2 ? Integer.parseInt(args[0]) : 2;
+        int size = args.length > 2 ? Integer.parseInt(args[1]) : 15;
+        int length = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        long millis = args.length > 3 ? Long.parseLong(args[3]) : 1000;
+        long megabytes = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        int numThreads = Runtime.getRuntime().availableProcessors();
+
+        BitBoard board = new BitBoard(dimensions, size, length);
+        MCTS tree = new MCTS(megabytes > 0 ? MCTS.capacityFor(megabytes << 20) : 1 << 22);
+        tree.setEviction(megabytes > 0);
+        System.out.println(dimensions + "D board of size " + size + ", " + length + " in a row, "
+                + board.numLines + " lines, " + millis + " ms per move");
+
+        int player = MAX;
+        while (board.evaluate() == NOT_OVER) {
+            long start = System.nanoTime();
+            int cell = tree.search(board, player, new Budget().time(millis), numThreads, MCTS.TREE_PARALLEL);
+            long elapsed = (System.nanoTime() - start) / 1000000;
+
+            board.play(cell, player);
+            tree.advance(cell);
+            System.out.println("Player " + printMark(player) + ": " + printCell(board, cell)
+                    + ". (" + elapsed + " ms, reused " + tree.inheritedVisits + " visits, tree " + tree.size()
+                    + " nodes, " + tree.evictedNodes() + " evicted)");
+            player = -player;
+        }
+
+        System.out.println();
+        printBoard(board);
+        System.out.println("Result: " + printResult(board.evaluate()));
+        System.out.println("Trees: " + tree.memoryBytes() / 1024 + " KB at " + NodePool.BYTES_PER_NODE + " bytes per node, "
+                + tree.numEvictions() + " evictions dropped " + tree.evictedNodes() + " nodes");
+    }
+}
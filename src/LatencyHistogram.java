@@ -0,0 +1,66 @@
+// Durations in nanoseconds counted in buckets of 1/32 of a power of two, so percentiles are within about 3%
+// without keeping every value. Not thread safe, each thread records into its own and they are added up at the end
+class LatencyHistogram {
+
+    // Values below 2^SUB_BITS get a bucket each, every higher power of two is split in 2^SUB_BITS buckets
+    private static final int SUB_BITS = 5;
+
+    private final long[] counts = new long[(64 - SUB_BITS + 1) << SUB_BITS];
+    private long count;
+    private long sum;
+    private long max;
+
+    void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts[indexOf(value)]++;
+        count++;
+        sum += value;
+        max = Math.max(max, value);
+    }
+
+    void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+        max = Math.max(max, other.max);
+    }
+
+    long count() {
+        return count;
+    }
+
+    long max() {
+        return max;
+    }
+
+    double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    // Smallest bucket bound that at least the given fraction of the values are not above, 0 when nothing was recorded
+    long percentile(double fraction) {
+        long rank = (long) Math.ceil(fraction * count);
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) return Math.min(upperBound(i), max);
+        }
+        return max;
+    }
+
+    private static int indexOf(long value) {
+        if (value < 1L << SUB_BITS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & ((1 << SUB_BITS) - 1);
+        return (exponent - SUB_BITS + 1) << SUB_BITS | sub;
+    }
+
+    private static long upperBound(int index) {
+        if (index < 1 << SUB_BITS) return index;
+        int exponent = (index >>> SUB_BITS) + SUB_BITS - 1;
+        long width = 1L << (exponent - SUB_BITS);
+        return (1L << exponent) + (index & ((1 << SUB_BITS) - 1)) * width + width - 1;
+    }
+}
@@ -0,0 +1,132 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Plays random moves against an EngineServer on many connections at once, one game after the other on each,
+// and reports engine moves per second and the time from sending a move to receiving the reply. Requests answered
+// BUSY are sent again a millisecond later, their waiting time counts towards the latency.
+// Arguments, all optional: host, port, connections, seconds, milliseconds per engine move, dimensions, size, length
+public class LoadGenerator {
+
+    // Results of one connection, added up at the end
+    private static final class Results {
+        long numMoves;
+        long numGames;
+        long numBusy;
+        final LatencyHistogram latency = new LatencyHistogram();
+
+        void add(Results other) {
+            numMoves += other.numMoves;
+            numGames += other.numGames;
+            numBusy += other.numBusy;
+            latency.add(other.latency);
+        }
+    }
+
+    private static Results playGames(String host, int port, long deadline, long millis, int dimensions, int size,
+                                     int length, Rng random) throws IOException, InterruptedException {
+        Results results = new Results();
+        BitBoard board = new BitBoard(dimensions, size, length);
+        int[] moves = new int[board.numCells];
+        try (Socket socket = new Socket(host, port)) {
+            socket.setTcpNoDelay(true);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            Writer writer = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.US_ASCII);
+
+            while (System.nanoTime() < deadline) {
+                String session = request(reader, writer, "NEW " + dimensions + " " + size + " " + length).split(" ")[1];
+                board.clear();
+
+                // The engine starts every other game
+                boolean isOver = false;
+                int cell = random.nextInt(2) == 0 ? -1 : moves[random.nextInt(board.getMoves(moves))];
+                while (!isOver) {
+                    if (cell >= 0) board.play(cell, nextPlayer(board));
+
+                    long start = System.nanoTime();
+                    String response;
+                    while ((response = request(reader, writer, "PLAY " + session + " " + cell + " " + millis)).equals("BUSY")) {
+                        results.numBusy++;
+                        Thread.sleep(1);
+                    }
+                    results.latency.record(System.nanoTime() - start);
+
+                    String[] parts = response.split(" ");
+                    if (parts[0].equals("OVER")) {
+                        isOver = true;
+                    } else if (parts[0].equals("MOVE")) {
+                        results.numMoves++;
+                        board.play(Integer.parseInt(parts[1]), nextPlayer(board));
+                        isOver = Integer.parseInt(parts[2]) != BitBoard.NOT_OVER;
+                        if (!isOver) cell = moves[random.nextInt(board.getMoves(moves))];
+                    } else {
+                        throw new IOException("Unexpected response " + response);
+                    }
+                }
+
+                request(reader, writer, "CLOSE " + session);
+                results.numGames++;
+            }
+        }
+        return results;
+    }
+
+    private static String request(BufferedReader reader, Writer writer, String line) throws IOException {
+        writer.write(line + "\n");
+        writer.flush();
+        String response = reader.readLine();
+        if (response == null) throw new IOException("Connection closed by the server");
+        if (response.startsWith("ERROR")) throw new IOException(response + " for " + line);
+        return response;
+    }
+
+    private static int nextPlayer(BitBoard board) {
+        return board.numStones % 2 == 0 ? BitBoard.MAX : BitBoard.MIN;
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 7878;
+        int numConnections = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 10;
+        long millis = args.length > 4 ? Long.parseLong(args[4]) : 10;
+        int dimensions = args.length > 7 ? Integer.parseInt(args[5]) : 3;
+        int size = args.length > 7 ? Integer.parseInt(args[6]) : 3;
+        int length = args.length > 7 ? Integer.parseInt(args[7]) : 3;
+
+        Rng random = new XorShiftRng(System.nanoTime());
+        ExecutorService pool = Executors.newFixedThreadPool(numConnections);
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1000000000L;
+        Results total = new Results();
+        try {
+            List<Future<Results>> connections = new ArrayList<>();
+            for (int i = 0; i < numConnections; i++) {
+                Rng connectionRandom = random.split();
+                connections.add(pool.submit(() -> playGames(host, port, deadline, millis, dimensions, size, length,
+                        connectionRandom)));
+            }
+            for (Future<Results> connection : connections) {
+                total.add(connection.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+
+        LatencyHistogram latency = total.latency;
+        System.out.printf("%d connections, %d ms per move: %d games, %d engine moves in %.1f s, %.0f moves/s, %d busy%n",
+                numConnections, millis, total.numGames, total.numMoves, elapsed, total.numMoves / elapsed, total.numBusy);
+        System.out.printf("Latency (ms): p50 %.1f  p99 %.1f  max %.1f  mean %.1f%n", latency.percentile(0.5) / 1e6,
+                latency.percentile(0.99) / 1e6, latency.max() / 1e6, latency.mean() / 1e6);
+    }
+}
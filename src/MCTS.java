@@ -0,0 +1,710 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Keeps its node pools between searches, so one instance must not run two searches at once
+class MCTS {
+
+    private static final int NOT_OVER = BitBoard.NOT_OVER;
+    private static final int ROOT = NodePool.ROOT;
+
+    // Independent trees per thread, root statistics are merged at the end
+    static final int ROOT_PARALLEL = 0;
+    // One shared tree, threads are spread over it by virtual loss
+    static final int TREE_PARALLEL = 1;
+
+    private static final int REWARD = 10;
+
+    private final int capacity;
+    private final Rng random;
+    private NodePool[] pools = new NodePool[0];
+    private NodePool[] spares = new NodePool[0];
+
+    // When a tree is full its least visited subtrees are dropped instead of adding no more children.
+    // Threads then hold the read lock of their tree for each iteration and evict under the write lock
+    private boolean evict;
+    private ReentrantReadWriteLock[] locks = new ReentrantReadWriteLock[0];
+    private final AtomicInteger numEvictions = new AtomicInteger();
+    private final AtomicLong evictedNodes = new AtomicLong();
+
+    // Position at the root of the kept trees, null when there is no tree to reuse
+    private BitBoard rootBoard;
+    private int numTrees;
+
+    // Visits the root already had when the last search started
+    int inheritedVisits;
+
+    // Progressive widening, a node visited n times gets at most wideningFactor * (n + 1)^wideningExponent children.
+    // Off while the factor is 0, every move then gets a child before any is visited twice
+    private double wideningFactor;
+    private double wideningExponent;
+
+    // RAVE, each child's value is blended with its all-moves-as-first value, which counts for as much as its own
+    // after equivalence visits. Off while it is 0. Nodes then get a child for every move at once, so that moves
+    // played in playouts are rated before they are tried
+    private double raveEquivalence;
+
+    // Moves of the playouts, which stop after rolloutDepth moves unless it is 0 and score the position heuristically
+    private RolloutPolicy policy = RolloutPolicy.RANDOM;
+    private int rolloutDepth;
+
+    // Order in which moves get a child, set by each search from the board's shape
+    private int[] moveOrder;
+
+    // Playouts stop at the first position stored here and score its solved value, null to always play to the end
+    private SolvedPositions solved;
+
+    // Set once the root of a tree is proven, which ends the search
+    private volatile boolean isRootProven;
+    private int numEarlyStops;
+
+    // Counters of the last search, pondering included, and of every search so far
+    private volatile MCTSStats lastStats = new MCTSStats();
+    private final MCTSStats totalStats = new MCTSStats();
+
+    // Background search started by startPondering
+    private Thread ponderer;
+    private volatile boolean stopping;
+
+    // Every tree holds at most capacity nodes, nodes get no more children once it is full
+    MCTS(int capacity) {
+        this(capacity, new XorShiftRng(System.nanoTime()));
+    }
+
+    // Searches with an iteration or node budget repeat exactly for the same random source
+    // when they run on one thread or root parallel
+    MCTS(int capacity, Rng random) {
+        this.capacity = capacity;
+        this.random = random;
+    }
+
+    // Returns the best cell for player after the given number of iterations split over numThreads threads
+    int search(BitBoard board, int player, int iterations, int numThreads, int mode) {
+        return search(board, player, new Budget().iterations(iterations), numThreads, mode);
+    }
+
+    // Searches until any limit of the budget is reached and returns the best cell found so far.
+    // Iterations are split over the threads, the node limit over the trees
+    int search(BitBoard board, int player, Budget budget, int numThreads, int mode) {
+        if (budget.isUnlimited()) throw new IllegalArgumentException("MCTS needs a time, iteration or node limit");
+
+        stopPondering();
+        return searchTrees(board, player, budget, numThreads, mode);
+    }
+
+    // Capacity of trees that, with the spare pools used to move or evict them, fit in the given number of bytes
+    static int capacityFor(long bytes) {
+        return (int) Math.min(Integer.MAX_VALUE, bytes / (2L * NodePool.BYTES_PER_NODE));
+    }
+
+    void setEviction(boolean evict) {
+        this.evict = evict;
+    }
+
+    void setWidening(double factor, double exponent) {
+        this.wideningFactor = factor;
+        this.wideningExponent = exponent;
+    }
+
+    void setRave(double equivalence) {
+        this.raveEquivalence = equivalence;
+    }
+
+    void setRolloutPolicy(RolloutPolicy policy) {
+        this.policy = policy;
+    }
+
+    void setRolloutDepth(int maxPlies) {
+        this.rolloutDepth = maxPlies;
+    }
+
+    void setSolvedPositions(SolvedPositions solved) {
+        this.solved = solved;
+    }
+
+    // Drops the kept trees, the next search starts from scratch
+    void clear() {
+        stopPondering();
+        rootBoard = null;
+    }
+
+    // Keeps searching the position in the background, for example while the opponent thinks about it.
+    // Runs until the trees are full or the next call to search, advance or stopPondering
+    void startPondering(BitBoard board, int player, int numThreads, int mode) {
+        stopPondering();
+
+        BitBoard position = board.copy();
+        Budget budget = new Budget().nodes((long) capacity * (mode == ROOT_PARALLEL ? numThreads : 1));
+        ponderer = new Thread(() -> searchTrees(position, player, budget, numThreads, mode), "mcts-ponder");
+        ponderer.setDaemon(true);
+        ponderer.start();
+    }
+
+    void stopPondering() {
+        if (ponderer == null) return;
+
+        stopping = true;
+        join(ponderer);
+        ponderer = null;
+        stopping = false;
+    }
+
+    private int searchTrees(BitBoard board, int player, Budget budget, int numThreads, int mode) {
+        long deadline = budget.deadline(System.nanoTime());
+        int numTrees = mode == ROOT_PARALLEL ? numThreads : 1;
+
+        // Keep the trees of the previous search when they start from this position, otherwise start over
+        inheritedVisits = 0;
+        moveOrder = board.getCellsFromCenter();
+        if (rootBoard != null && numTrees == this.numTrees
+                && rootBoard.isSamePosition(board) && pools[0].players[ROOT] == -player) {
+            for (int i = 0; i < numTrees; i++) {
+                inheritedVisits += pools[i].numTries.get(ROOT);
+            }
+        } else {
+            pools = grow(pools, numTrees);
+            for (int i = 0; i < numTrees; i++) {
+                createRoot(pools[i], player);
+            }
+            this.numTrees = numTrees;
+            rootBoard = board.copy();
+        }
+
+        if (evict) {
+            spares = grow(spares, numTrees);
+            if (locks.length < numTrees) {
+                locks = new ReentrantReadWriteLock[numTrees];
+                for (int i = 0; i < numTrees; i++) {
+                    locks[i] = new ReentrantReadWriteLock();
+                }
+            }
+        }
+
+        // A reused root may already be proven by its children, then there is nothing left to search
+        isRootProven = false;
+        for (int i = 0; i < numTrees; i++) {
+            if (prove(pools[i], ROOT, board.numCells - board.numStones) != NOT_OVER) isRootProven = true;
+        }
+
+        // Inherited visits count towards the iterations, so a kept tree answers sooner at the same strength
+        long iterations = budget.iterations;
+        if (iterations != Budget.UNLIMITED) iterations = Math.max(0, iterations - inheritedVisits);
+
+        long maxNodes = budget.nodes == Budget.UNLIMITED ? Budget.UNLIMITED : budget.nodes / numTrees;
+        MCTSStats stats = new MCTSStats();
+        stats.inheritedVisits = inheritedVisits;
+        if (numThreads == 1) {
+            run(0, board, iterations, maxNodes, deadline, random.split(), stats);
+        } else {
+            Thread[] workers = new Thread[numThreads];
+            for (int t = 0; t < numThreads; t++) {
+                int tree = mode == ROOT_PARALLEL ? t : 0;
+                long share = iterations;
+                if (share != Budget.UNLIMITED) share = share / numThreads + (t < share % numThreads ? 1 : 0);
+                long threadIterations = share;
+                Rng stream = random.split();
+                workers[t] = new Thread(() -> run(tree, board, threadIterations, maxNodes, deadline, stream, stats),
+                        "mcts-" + t);
+                workers[t].start();
+            }
+            for (Thread worker : workers) {
+                join(worker);
+            }
+        }
+        if (isRootProven) numEarlyStops++;
+        stats.treeSize = size();
+        lastStats = stats;
+        synchronized (totalStats) {
+            totalStats.add(stats);
+        }
+
+        // Return best move after certain number of iterations, summing statistics of every tree.
+        // A move proven in any tree has that result in all of them
+        int[] points = new int[board.numCells];
+        int[] numTries = new int[board.numCells];
+        int[] proven = new int[board.numCells];
+        Arrays.fill(proven, NOT_OVER);
+        for (int i = 0; i < numTrees; i++) {
+            NodePool pool = pools[i];
+            int child = pool.firstChild[ROOT];
+            for (int c = 0; c < pool.numChildren.get(ROOT); c++, child = pool.nextSibling[child]) {
+                points[pool.cells[child]] += pool.points.get(child);
+                numTries[pool.cells[child]] += pool.numTries.get(child);
+                if (pool.proven[child] != NOT_OVER) proven[pool.cells[child]] = pool.proven[child];
+            }
+        }
+
+        // A root child that was never tried only wins when no child was tried at all.
+        // Proven wins come first and proven losses last, a proven draw is worth no points. Proven losses are compared
+        // by visits: a loss that takes longer to prove held out longer, while one on the spot is proven at once
+        int bestRank = -1;
+        double bestValue = Integer.MIN_VALUE;
+        int bestCell = -1;
+        for (int cell = 0; cell < board.numCells; cell++) {
+            if (numTries[cell] == 0) {
+                if (bestCell < 0 && board.get(cell) == BitBoard.EMPTY) bestCell = cell;
+                continue;
+            }
+            // RAVE spends most visits on a few moves, the averages of the others rest on a handful of playouts,
+            // so then the most visited move is chosen instead
+            double value = raveEquivalence > 0 ? numTries[cell] : (double) points[cell] / numTries[cell];
+            int rank = 1;
+            if (proven[cell] == player) {
+                rank = 2;
+            } else if (proven[cell] == -player) {
+                rank = 0;
+                value = numTries[cell];
+            } else if (proven[cell] == BitBoard.DRAW && raveEquivalence <= 0) {
+                value = 0;
+            }
+            if (rank > bestRank || rank == bestRank && value > bestValue) {
+                bestRank = rank;
+                bestValue = value;
+                bestCell = cell;
+            }
+        }
+
+        return bestCell;
+    }
+
+    // Number of nodes used by the last search, summed over every tree
+    int size() {
+        if (rootBoard == null) return 0;
+        int result = 0;
+        for (int i = 0; i < numTrees; i++) {
+            result += pools[i].size();
+        }
+        return result;
+    }
+
+    // Bytes held by the node pools, spare pools included
+    long memoryBytes() {
+        return (long) (pools.length + spares.length) * capacity * NodePool.BYTES_PER_NODE;
+    }
+
+    // Times a full tree was cut down, summed over every search
+    int numEvictions() {
+        return numEvictions.get();
+    }
+
+    // Nodes dropped by those evictions
+    long evictedNodes() {
+        return evictedNodes.get();
+    }
+
+    // Playouts run so far, a leaf whose result is known for sure needs none
+    long numPlayouts() {
+        synchronized (totalStats) {
+            return totalStats.playouts;
+        }
+    }
+
+    // Moves played by those playouts
+    long playoutPlies() {
+        synchronized (totalStats) {
+            return totalStats.playoutPlies;
+        }
+    }
+
+    // Searches that ended before their budget because the result of the root position was proven
+    int numEarlyStops() {
+        return numEarlyStops;
+    }
+
+    // Counters of the last search, timings and depth only while Metrics is enabled
+    MCTSStats stats() {
+        return lastStats;
+    }
+
+    // Moves the root of every tree to the child reached by cell and drops its siblings.
+    // Has to be called for every move played, the next search then continues below it
+    void advance(int cell) {
+        stopPondering();
+        if (rootBoard == null) return;
+
+        spares = grow(spares, numTrees);
+        for (int i = 0; i < numTrees; i++) {
+            NodePool pool = pools[i];
+            int child = -1;
+            int c = pool.firstChild[ROOT];
+            for (int n = 0; n < pool.numChildren.get(ROOT); n++, c = pool.nextSibling[c]) {
+                if (pool.cells[c] == cell) child = c;
+            }
+            if (child < 0) {
+                // Move was never expanded, nothing to keep
+                rootBoard = null;
+                return;
+            }
+
+            spares[i].copySubtree(pool, child);
+            pools[i] = spares[i];
+            spares[i] = pool;
+        }
+        rootBoard.play(cell, pools[0].players[ROOT]);
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while searching", e);
+        }
+    }
+
+    private NodePool[] grow(NodePool[] trees, int length) {
+        if (trees.length >= length) return trees;
+        NodePool[] grown = new NodePool[length];
+        System.arraycopy(trees, 0, grown, 0, trees.length);
+        for (int i = trees.length; i < length; i++) {
+            grown[i] = new NodePool(capacity);
+        }
+        return grown;
+    }
+
+    private static void createRoot(NodePool pool, int player) {
+        pool.reset();
+        pool.allocate(1);
+        pool.init(ROOT, -1, -1, -player); // Because children player is opposite of parent
+    }
+
+    // Adds the counters of this thread to stats once done
+    private void run(int tree, BitBoard board, long iterations, long maxNodes, long deadline, Rng random,
+                     MCTSStats stats) {
+        BitBoard state = board.copy();
+        int[] moves = new int[board.numCells];
+        Lock lock = evict ? locks[tree].readLock() : null;
+        MCTSStats counters = new MCTSStats();
+
+        for (long i = 0; i < iterations && pools[tree].size() < maxNodes && System.nanoTime() < deadline && !stopping
+                && !isRootProven; i++) {
+            boolean isFull;
+            if (lock != null) lock.lock();
+            try {
+                isFull = !iterate(pools[tree], board, state, moves, random, counters);
+            } finally {
+                if (lock != null) lock.unlock();
+            }
+            if (isFull && evict) evict(tree);
+        }
+
+        synchronized (stats) {
+            stats.add(counters);
+        }
+    }
+
+    // Cuts the tree down to half its capacity by dropping the children of its least visited nodes
+    private void evict(int tree) {
+        Lock lock = locks[tree].writeLock();
+        lock.lock();
+        try {
+            // Another thread may have made room while this one waited
+            NodePool pool = pools[tree];
+            if (pool.size() < capacity) return;
+
+            NodePool spare = spares[tree];
+            spare.copySubtree(pool, ROOT, pool.minTriesToKeep(capacity / 2));
+            pools[tree] = spare;
+            spares[tree] = pool;
+            numEvictions.incrementAndGet();
+            evictedNodes.addAndGet(pool.size() - spare.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // One playout from the root, returns false when a node could not get a child because the pool is full
+    private boolean iterate(NodePool pool, BitBoard board, BitBoard state, int[] moves, Rng random, MCTSStats stats) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        long expansionNanos = 0;
+
+        // Selection, replaying moves from the root and adding a virtual loss on the way down.
+        // Ends on the first node with an untried move, after giving it a child for that move and moving there
+        state.load(board);
+        int node = ROOT;
+        pool.virtualLoss.incrementAndGet(node);
+        boolean isFull = false;
+        int score;
+        while (true) {
+            int numChildren = pool.numChildren.get(node);
+            if (numChildren >= 0 && pool.nextMove[node] < moveOrder.length && canWiden(pool, node, numChildren)) {
+                score = evaluate(pool, node, state);
+                if (score != NOT_OVER) break;
+
+                // Expansion, done by whichever thread claims the node first
+                if (pool.numChildren.compareAndSet(node, numChildren, NodePool.EXPANDING)) {
+                    long expansionStart = Metrics.ENABLED ? System.nanoTime() : 0;
+                    int child = raveEquivalence > 0 && numChildren == 0
+                            ? addChildren(pool, node, state) : addChild(pool, node, numChildren, state);
+                    if (Metrics.ENABLED) expansionNanos = System.nanoTime() - expansionStart;
+                    if (child >= 0) stats.expansions++;
+                    if (child >= 0) {
+                        node = child;
+                        state.play(pool.cells[node], pool.players[node]);
+                        pool.virtualLoss.incrementAndGet(node);
+                        score = state.evaluate(pool.cells[node]);
+                        break;
+                    }
+                    isFull = pool.nextMove[node] < moveOrder.length;
+                }
+                if (numChildren == 0) break;
+            } else if (numChildren <= 0) {
+                // Over, or another thread is adding a child
+                score = evaluate(pool, node, state);
+                break;
+            }
+
+            int child = selectChild(pool, node, numChildren);
+            if (child < 0) {
+                // Every child is proven, the node may be proven by them too
+                score = prove(pool, node, state.numCells - state.numStones);
+                break;
+            }
+            node = child;
+            state.play(pool.cells[node], pool.players[node]);
+            pool.virtualLoss.incrementAndGet(node);
+        }
+
+        stats.iterations++;
+        long selected = 0;
+        if (Metrics.ENABLED) {
+            selected = System.nanoTime();
+            stats.selectionNanos += selected - start - expansionNanos;
+            stats.expansionNanos += expansionNanos;
+            stats.maxDepth = Math.max(stats.maxDepth, state.numStones - board.numStones);
+        }
+
+        // Simulation, unless the result of the leaf is known for sure, which proves it
+        int stones = state.numStones;
+        // The root is not probed, a root proven without children would have no move to choose
+        if (score == NOT_OVER && solved != null && node != ROOT) score = solved.probe(state, -pool.players[node]);
+        boolean isProving = score != NOT_OVER;
+        if (isProving) {
+            setProven(pool, node, score);
+        } else {
+            score = runRandomly(state, -pool.players[node], score, moves, random, policy, rolloutDepth, solved);
+            stats.playouts++;
+            stats.playoutPlies += state.numStones - stones;
+        }
+        long simulated = 0;
+        if (Metrics.ENABLED) {
+            simulated = System.nanoTime();
+            stats.simulationNanos += simulated - selected;
+        }
+
+        // Back Propagation, points are kept for the player who moved into each node.
+        // Proofs go up as long as each parent is proven by its children, their result replaces the playout's
+        if (raveEquivalence > 0) updateAmaf(pool, node, state, score);
+        for (int leaf = node; node >= 0; node = pool.parents[node], stones--) {
+            if (isProving && node != leaf) {
+                int result = prove(pool, node, state.numCells - stones);
+                if (result == NOT_OVER) {
+                    isProving = false;
+                } else {
+                    setProven(pool, node, result);
+                    score = result;
+                }
+            }
+
+            if (score == pool.players[node]) {
+                pool.points.addAndGet(node, REWARD);
+            } else if (score == -pool.players[node]) {
+                pool.points.addAndGet(node, -REWARD);
+            }
+
+            pool.numTries.incrementAndGet(node);
+            pool.virtualLoss.decrementAndGet(node);
+        }
+
+        if (Metrics.ENABLED) stats.backpropagationNanos += System.nanoTime() - simulated;
+        return !isFull;
+    }
+
+    // Child with the highest UCB value among the first numChildren children of node that are not proven,
+    // or -1 when all of them are
+    private int selectChild(NodePool pool, int node, int numChildren) {
+        double logParentTries = Math.log(pool.numTries.get(node) + pool.virtualLoss.get(node));
+        double bestValue = Integer.MIN_VALUE;
+        int bestNode = -1;
+        int child = pool.firstChild[node];
+        for (int i = 0; i < numChildren; i++, child = pool.nextSibling[child]) {
+            if (pool.proven[child] != NOT_OVER) continue;
+            double value = getUCBValue(pool, child, logParentTries);
+            if (value > bestValue) {
+                bestValue = value;
+                bestNode = child;
+            }
+        }
+        return bestNode;
+    }
+
+    // Result of node proven by its children, numMoves of them when it is fully expanded: a win when one child
+    // is a win for the player to move, else a draw or loss once every child is proven, NOT_OVER until then
+    private static int prove(NodePool pool, int node, int numMoves) {
+        int player = -pool.players[node];
+        int numChildren = pool.numChildren.get(node);
+        boolean isComplete = numChildren == numMoves;
+        boolean isDraw = false;
+        int child = pool.firstChild[node];
+        for (int i = 0; i < numChildren; i++, child = pool.nextSibling[child]) {
+            int result = pool.proven[child];
+            if (result == player) return player;
+            if (result == NOT_OVER) isComplete = false;
+            if (result == BitBoard.DRAW) isDraw = true;
+        }
+        if (!isComplete) return NOT_OVER;
+        return isDraw ? BitBoard.DRAW : -player;
+    }
+
+    private void setProven(NodePool pool, int node, int result) {
+        pool.proven[node] = (byte) result;
+        if (node == ROOT) isRootProven = true;
+    }
+
+    // Expects node to be claimed as EXPANDING with no children and state to hold its position. Gives it a child
+    // for every empty cell, in one block, and returns the one to try first, or -1 when the pool is full
+    private int addChildren(NodePool pool, int node, BitBoard state) {
+        int numMoves = state.numCells - state.numStones;
+        int first = pool.allocate(numMoves);
+        if (first < 0) {
+            pool.numChildren.set(node, 0);
+            return -1;
+        }
+
+        int child = first;
+        for (int index = 0; index < moveOrder.length; index++) {
+            if (state.get(moveOrder[index]) != BitBoard.EMPTY) continue;
+            pool.init(child, node, moveOrder[index], -pool.players[node]);
+            if (child > first) pool.nextSibling[child - 1] = child;
+            child++;
+        }
+        pool.firstChild[node] = first;
+        pool.nextMove[node] = (short) moveOrder.length;
+        pool.numChildren.set(node, numMoves);
+        return selectChild(pool, node, numMoves);
+    }
+
+    // Adds the result of a playout that ended in state to the all-moves-as-first statistics of the children
+    // of every node from leaf up to the root, for each child whose cell holds a stone of its player.
+    // The cells of a node's children were empty in its position, so those stones were all played below it
+    private void updateAmaf(NodePool pool, int leaf, BitBoard state, int score) {
+        for (int node = leaf; node >= 0; node = pool.parents[node]) {
+            int numChildren = pool.numChildren.get(node);
+            int child = pool.firstChild[node];
+            for (int i = 0; i < numChildren; i++, child = pool.nextSibling[child]) {
+                int player = pool.players[child];
+                if (state.get(pool.cells[child]) != player) continue;
+
+                if (score == player) {
+                    pool.amafPoints.addAndGet(child, REWARD);
+                } else if (score == -player) {
+                    pool.amafPoints.addAndGet(child, -REWARD);
+                }
+                pool.amafTries.incrementAndGet(child);
+            }
+        }
+    }
+
+    private boolean canWiden(NodePool pool, int node, int numChildren) {
+        return numChildren == 0 || wideningFactor <= 0
+                || numChildren < wideningFactor * Math.pow(pool.numTries.get(node) + 1, wideningExponent);
+    }
+
+    // Expects node to be claimed as EXPANDING and state to hold its position. Adds the next empty cell
+    // in the move order as the last child and returns it, or -1 when no move is left or the pool is full
+    private int addChild(NodePool pool, int node, int numChildren, BitBoard state) {
+        int index = pool.nextMove[node];
+        while (index < moveOrder.length && state.get(moveOrder[index]) != BitBoard.EMPTY) {
+            index++;
+        }
+
+        int child = -1;
+        if (index < moveOrder.length) {
+            int last = numChildren > 0 ? pool.getChild(node, numChildren - 1) : -1;
+            if (numChildren == NodePool.reservedChildren(numChildren)) {
+                // Block is full, the next one holds as many children as there are already, or the moves left
+                int numMovesLeft = state.numCells - state.numStones - numChildren;
+                int size = Math.min(numChildren + 1, numMovesLeft);
+                child = pool.allocate(size);
+                for (int i = 1; i < size && child >= 0; i++) {
+                    pool.numChildren.lazySet(child + i, 0);
+                }
+            } else {
+                child = last + 1;
+            }
+
+            if (child >= 0) {
+                pool.init(child, node, moveOrder[index++], -pool.players[node]);
+                if (last < 0) {
+                    pool.firstChild[node] = child;
+                } else {
+                    pool.nextSibling[last] = child;
+                }
+                numChildren++;
+            }
+        }
+        pool.nextMove[node] = (short) index;
+        pool.numChildren.set(node, numChildren);
+        return child;
+    }
+
+    private static int evaluate(NodePool pool, int node, BitBoard state) {
+        return node == ROOT ? state.evaluate() : state.evaluate(pool.cells[node]);
+    }
+
+    // Plays random moves from state until the game ends, returns the result for MAX
+    static int runRandomly(BitBoard state, int player, int[] moves, Rng random) {
+        return runRandomly(state, player, moves, random, RolloutPolicy.RANDOM);
+    }
+
+    // Same, with moves chosen by policy
+    static int runRandomly(BitBoard state, int player, int[] moves, Rng random, RolloutPolicy policy) {
+        return runRandomly(state, player, state.evaluate(), moves, random, policy, 0, null);
+    }
+
+    // Same, for a state whose result is already known, ending early on a position stored in solved unless it is null.
+    // The state itself is not probed. After maxPlies moves, unless it is 0, the playout stops and the side ahead
+    // by the minimax heuristic wins. The empty cells are listed once, each move takes one and fills its place
+    // with the last
+    private static int runRandomly(BitBoard state, int player, int score, int[] moves, Rng random,
+                                   RolloutPolicy policy, int maxPlies, SolvedPositions solved) {
+        int numMoves = score == NOT_OVER ? state.getMoves(moves) : 0;
+        int lastCell = -1;
+        int previousCell = -1;
+        for (int plies = 0; score == NOT_OVER; plies++) {
+            if (plies == maxPlies && plies > 0) return Integer.signum(Minimax.getHeuristicValue(state));
+
+            int index = policy.select(state, player, lastCell, previousCell, moves, numMoves, random);
+            int cell = moves[index];
+            moves[index] = moves[--numMoves];
+            state.play(cell, player);
+            score = state.evaluate(cell);
+            if (score == NOT_OVER && solved != null) score = solved.probe(state, -player);
+            player = -player;
+            previousCell = lastCell;
+            lastCell = cell;
+        }
+
+        return score;
+    }
+
+    // Pending playouts of other threads count as losses until they are backed up.
+    // With RAVE the average is blended with the all-moves-as-first average, by a weight of
+    // sqrt(k / (3n + k)) for n visits and equivalence k, and the nodes not visited yet come first by that alone
+    private double getUCBValue(NodePool pool, int node, double logParentTries) {
+        int virtualLoss = pool.virtualLoss.get(node);
+        int numTries = pool.numTries.get(node) + virtualLoss;
+        int amafTries = raveEquivalence > 0 ? pool.amafTries.get(node) : 0;
+        double amafValue = amafTries == 0 ? 0 : (double) pool.amafPoints.get(node) / amafTries;
+        if (numTries == 0) return Integer.MAX_VALUE - REWARD + amafValue;
+
+        double value = (pool.points.get(node) - REWARD * virtualLoss) / (double) numTries;
+        if (amafTries > 0) {
+            double weight = Math.sqrt(raveEquivalence / (3 * numTries + raveEquivalence));
+            value = (1 - weight) * value + weight * amafValue;
+        }
+        return value + Math.sqrt(2 * logParentTries / numTries);
+    }
+}
@@ -0,0 +1,208 @@
+// Measurements that compare MCTS settings against each other in one run: speedup over threads, eviction,
+// solving, and the win rates of RAVE and rollout policies. They report playing strength and counts that JMH
+// does not, so they are plain runs here, while throughput of single operations is measured by the JMH
+// benchmarks module
+public class MCTSExperiments {
+
+    private static void measure(int dimensions, int iterations, int mode) {
+        BitBoard board = new BitBoard(dimensions);
+        MCTS tree = new MCTS(dimensions == 2 ? 1 << 20 : 1 << 22);
+        int maxThreads = Runtime.getRuntime().availableProcessors();
+
+        // Warm up the JIT before timing anything
+        tree.search(board, BitBoard.MAX, iterations, 1, mode);
+
+        double baseline = 0;
+        for (int numThreads = 1; ; numThreads = Math.min(numThreads * 2, maxThreads)) {
+            tree.clear();
+            long start = System.nanoTime();
+            tree.search(board, BitBoard.MAX, iterations, numThreads, mode);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            double rate = iterations / seconds;
+            if (numThreads == 1) baseline = rate;
+            System.out.printf("%dD %-13s threads: %2d  iterations/s: %10.0f  speedup: %.2fx%n",
+                    dimensions, mode == MCTS.ROOT_PARALLEL ? "root-parallel" : "tree-parallel",
+                    numThreads, rate, rate / baseline);
+
+            if (numThreads == maxThreads) break;
+        }
+    }
+
+    // Long search on gomoku with a pool far too small for the tree, leaving leaves unexpanded once it is full
+    // or evicting the least visited nodes
+    private static void measureEviction(int capacity, int iterations) {
+        BitBoard board = new BitBoard(2, 15, 5);
+        for (boolean evict : new boolean[]{false, true}) {
+            MCTS tree = new MCTS(capacity);
+            tree.setEviction(evict);
+
+            // Warm up the JIT before timing anything
+            tree.search(board, BitBoard.MAX, iterations / 10, 1, MCTS.TREE_PARALLEL);
+
+            tree.clear();
+            int evictions = tree.numEvictions();
+            long evicted = tree.evictedNodes();
+            long start = System.nanoTime();
+            tree.search(board, BitBoard.MAX, iterations, 1, MCTS.TREE_PARALLEL);
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            System.out.printf("gomoku %-8s iterations/s: %10.0f  tree: %8d nodes  evictions: %5d  evicted: %10d  bytes: %d (%d per node)%n",
+                    evict ? "evicting" : "full", iterations / seconds, tree.size(), tree.numEvictions() - evictions,
+                    tree.evictedNodes() - evicted, tree.memoryBytes(), NodePool.BYTES_PER_NODE);
+        }
+    }
+
+    // Positions after a few random moves, searched until the result of the root is proven or the budget runs out.
+    // A move is correct when it keeps the value minimax finds for the position
+    private static void measureSolving(int dimensions, int stones, int numPositions, int iterations) {
+        Rng random = new XorShiftRng(11);
+        BitBoard board = new BitBoard(dimensions);
+        TranspositionTable table = new TranspositionTable(22);
+        MCTS tree = new MCTS(1 << 22);
+        int[] moves = new int[board.numCells];
+
+        int numCorrect = 0;
+        long numNodes = 0;
+        int earlyStops = tree.numEarlyStops();
+        long start = System.nanoTime();
+        for (int i = 0; i < numPositions; i++) {
+            int player;
+            do {
+                board.clear();
+                player = BitBoard.MAX;
+                for (int s = 0; s < stones && board.evaluate() == BitBoard.NOT_OVER; s++) {
+                    board.play(moves[random.nextInt(board.getMoves(moves))], player);
+                    player = -player;
+                }
+            } while (board.evaluate() != BitBoard.NOT_OVER);
+
+            tree.clear();
+            int cell = tree.search(board, player, iterations, 1, MCTS.TREE_PARALLEL);
+            numNodes += tree.size();
+
+            table.clear();
+            int value = Integer.signum(Minimax.search(board, player, table, Budget.unlimited())[1]);
+            board.play(cell, player);
+            int result = board.evaluate(cell);
+            if (result == BitBoard.NOT_OVER) {
+                table.clear();
+                result = Integer.signum(Minimax.search(board, -player, table, Budget.unlimited())[1]);
+            }
+            if (result == value) numCorrect++;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.printf("%dD %2d stones  positions: %4d  correct: %4d  proven early: %4d  nodes per search: %8d  s: %.1f%n",
+                dimensions, stones, numPositions, numCorrect, tree.numEarlyStops() - earlyStops,
+                numNodes / numPositions, seconds);
+    }
+
+    // Games against plain UCB searching a fixed number of iterations, half of them starting, with the iterations
+    // doubled until the player under test scores at least the target share, a draw counting half.
+    // Plain UCB first, then RAVE with each equivalence
+    private static void measureRave(int dimensions, int size, int length, int opponentIterations, int numGames,
+                                    double target, double... equivalences) {
+        MCTS opponent = new MCTS(1 << 20, new XorShiftRng(5));
+        for (int e = -1; e < equivalences.length; e++) {
+            double equivalence = e < 0 ? 0 : equivalences[e];
+            MCTS tree = new MCTS(1 << 20, new XorShiftRng(3));
+            tree.setRave(equivalence);
+
+            for (int iterations = opponentIterations / 16; iterations <= opponentIterations * 16; iterations *= 2) {
+                BitBoard board = new BitBoard(dimensions, size, length);
+                int score = 0;
+                long start = System.nanoTime();
+                for (int game = 0; game < numGames; game++) {
+                    int side = game % 2 == 0 ? BitBoard.MAX : BitBoard.MIN;
+                    board.clear();
+                    tree.clear();
+                    opponent.clear();
+                    int player = BitBoard.MAX;
+                    int result = BitBoard.NOT_OVER;
+                    while (result == BitBoard.NOT_OVER) {
+                        int cell = player == side ? tree.search(board, player, iterations, 1, MCTS.TREE_PARALLEL)
+                                : opponent.search(board, player, opponentIterations, 1, MCTS.TREE_PARALLEL);
+                        board.play(cell, player);
+                        result = board.evaluate(cell);
+                        player = -player;
+                    }
+                    score += result == side ? 2 : result == BitBoard.DRAW ? 1 : 0;
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                double share = score / (2.0 * numGames);
+                System.out.printf("%dD size %d, %d in a row  %-9s iterations: %6d  score against %d: %5.1f%%  s: %.1f%n",
+                        dimensions, size, length, equivalence > 0 ? "RAVE " + (int) equivalence : "UCB",
+                        iterations, opponentIterations, 100 * share, seconds);
+                if (share >= target) break;
+            }
+        }
+    }
+
+    // Playout speed and length of each rollout policy, with and without a depth cutoff, then its score against
+    // random playouts to the end with the same time per move, half of the games starting, a draw counting half
+    private static void measureRollouts(int dimensions, int size, int length, int cutoff, long millis, int numGames) {
+        BitBoard board = new BitBoard(dimensions, size, length);
+        RolloutPolicy[] policies = {RolloutPolicy.RANDOM, RolloutPolicy.TACTICAL};
+        MCTS opponent = new MCTS(1 << 20);
+        for (int depth : new int[]{0, cutoff}) {
+            for (RolloutPolicy policy : policies) {
+                MCTS tree = new MCTS(1 << 20);
+                tree.setRolloutPolicy(policy);
+                tree.setRolloutDepth(depth);
+
+                // Warm up the JIT before timing anything
+                tree.search(board, BitBoard.MAX, new Budget().time(millis), 1, MCTS.TREE_PARALLEL);
+
+                tree.clear();
+                long playouts = tree.numPlayouts();
+                long plies = tree.playoutPlies();
+                long start = System.nanoTime();
+                tree.search(board, BitBoard.MAX, new Budget().time(4 * millis), 1, MCTS.TREE_PARALLEL);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                playouts = tree.numPlayouts() - playouts;
+                plies = tree.playoutPlies() - plies;
+
+                int score = 0;
+                for (int game = 0; game < numGames; game++) {
+                    int side = game % 2 == 0 ? BitBoard.MAX : BitBoard.MIN;
+                    board.clear();
+                    tree.clear();
+                    opponent.clear();
+                    int player = BitBoard.MAX;
+                    int result = BitBoard.NOT_OVER;
+                    while (result == BitBoard.NOT_OVER) {
+                        MCTS searcher = player == side ? tree : opponent;
+                        int cell = searcher.search(board, player, new Budget().time(millis), 1, MCTS.TREE_PARALLEL);
+                        board.play(cell, player);
+                        result = board.evaluate(cell);
+                        player = -player;
+                    }
+                    score += result == side ? 2 : result == BitBoard.DRAW ? 1 : 0;
+                }
+                board.clear();
+
+                System.out.printf("%dD size %d, %d in a row  %-8s depth: %-4s playouts/s: %9.0f  plies per playout: %5.1f  score: %5.1f%%%n",
+                        dimensions, size, length, policy == RolloutPolicy.RANDOM ? "random" : "tactical",
+                        depth == 0 ? "end" : String.valueOf(depth), playouts / seconds, (double) plies / playouts,
+                        100.0 * score / (2 * numGames));
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        measure(2, 1000000, MCTS.ROOT_PARALLEL);
+        measure(2, 1000000, MCTS.TREE_PARALLEL);
+        measure(3, 100000, MCTS.ROOT_PARALLEL);
+        measure(3, 100000, MCTS.TREE_PARALLEL);
+        measureEviction(1 << 18, 200000);
+        measureSolving(2, 0, 1, 1000000);
+        measureSolving(3, 8, 50, 200000);
+        measureSolving(3, 4, 20, 1000000);
+        measureRave(3, 4, 4, 2000, 40, 0.5, 100, 1000);
+        measureRollouts(3, 4, 4, 8, 100, 20);
+        measureRollouts(2, 15, 5, 20, 200, 10);
+    }
+
+}
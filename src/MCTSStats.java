@@ -0,0 +1,54 @@
+// Counters of an MCTS search, summed over every searching thread. The depth and the phase timings
+// are only kept while Metrics is enabled
+class MCTSStats implements SearchReport.Counters {
+
+    long iterations;
+    long expansions; // Iterations that gave a node a child
+    long playouts; // Iterations whose leaf result was not known for sure
+    long playoutPlies;
+    int maxDepth; // Deepest node reached below the root
+    int treeSize; // Nodes in the trees at the end, every tree summed
+    int inheritedVisits; // Root visits kept from the previous search
+
+    // Time of each phase of the iterations, selection without the expansions done on the way
+    long selectionNanos;
+    long expansionNanos;
+    long simulationNanos;
+    long backpropagationNanos;
+
+    void add(MCTSStats other) {
+        iterations += other.iterations;
+        expansions += other.expansions;
+        playouts += other.playouts;
+        playoutPlies += other.playoutPlies;
+        maxDepth = Math.max(maxDepth, other.maxDepth);
+        treeSize += other.treeSize;
+        inheritedVisits += other.inheritedVisits;
+        selectionNanos += other.selectionNanos;
+        expansionNanos += other.expansionNanos;
+        simulationNanos += other.simulationNanos;
+        backpropagationNanos += other.backpropagationNanos;
+    }
+
+    @Override
+    public void appendJson(StringBuilder json) {
+        json.append("\"iterations\":").append(iterations)
+                .append(",\"expansions\":").append(expansions)
+                .append(",\"playouts\":").append(playouts)
+                .append(",\"playoutPlies\":").append(playoutPlies)
+                .append(",\"maxDepth\":").append(maxDepth)
+                .append(",\"treeSize\":").append(treeSize)
+                .append(",\"inheritedVisits\":").append(inheritedVisits)
+                .append(",\"selectionNanos\":").append(selectionNanos)
+                .append(",\"expansionNanos\":").append(expansionNanos)
+                .append(",\"simulationNanos\":").append(simulationNanos)
+                .append(",\"backpropagationNanos\":").append(backpropagationNanos);
+    }
+
+    @Override
+    public String toString() {
+        return iterations + " iterations, " + expansions + " expansions, " + playouts + " playouts of "
+                + playoutPlies + " moves, depth " + maxDepth + ", " + treeSize + " nodes, " + inheritedVisits
+                + " visits inherited";
+    }
+}
@@ -0,0 +1,6 @@
+// Switch for the search counters that cost time to keep, the phase timings of MCTS and the depths reached.
+// Set with -Dmetrics=true. It is a constant, so with it off the checks compile away and the searches run as without them
+class Metrics {
+
+    static final boolean ENABLED = Boolean.getBoolean("metrics");
+}
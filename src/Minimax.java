@@ -0,0 +1,481 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+// One searching thread of a negamax alpha-beta search with principal variation search. Threads of a
+// parallel search share the table, the limits and the node count. Each keeps its own counters and move ordering
+// heuristics, so they write no shared memory but the table at every node
+class Minimax {
+
+    private static final int MAX = BitBoard.MAX;
+    private static final int MIN = BitBoard.MIN;
+    private static final int NOT_OVER = BitBoard.NOT_OVER;
+
+    // Score of a won position, heuristic scores always stay below it
+    static final int WIN_SCORE = 1 << 30;
+
+    // Every score lies strictly inside (-INFINITY, INFINITY), and negating either bound cannot overflow
+    private static final int INFINITY = Integer.MAX_VALUE;
+
+    // Heuristic weight of a line holding stones of only one player, by number of stones.
+    // Longer lines weigh as much as the last entry
+    private static final int[] LINE_WEIGHTS = {0, 1, 10, 100, 1000, 10000};
+
+    // Only nodes this close to the root, with at least MIN_SPLIT_DEPTH plies left below them,
+    // search in parallel. Deeper nodes are too small to pay for the tasks
+    private static final int MAX_SPLIT_PLY = 3;
+    private static final int MIN_SPLIT_DEPTH = 4;
+
+    // Visited nodes are added to the shared count, and the limits checked, once per batch
+    private static final int NODE_BATCH = 1024;
+
+    // Cutoff moves remembered per ply
+    private static final int NUM_KILLERS = 2;
+
+    // History scores are halved once one of them passes this
+    private static final int MAX_HISTORY = 1 << 28;
+
+    private final Shared shared;
+    private final int[][] moves; // Move list of each remaining depth
+    private final long[][] orderKeys; // Sort keys of those moves
+    private final SearchStats stats = new SearchStats(); // Added to the shared counters when the thread is done
+
+    // Set when a child of a parallel node found its window closed by the siblings, its result is then meaningless
+    private boolean abandoned;
+
+    // Move ordering, started from those of the search that split off this one
+    private final int[][] history; // Depth squared summed over the cutoffs of each cell, by player
+    private final int[][] killers; // Last cells, plus one, that caused a cutoff at each ply
+
+    private static final class Shared {
+        final TranspositionTable table;
+        final SolvedPositions solved;
+        final int rootStones;
+        final boolean isParallel;
+        final long maxNodes;
+        final long deadline;
+        final AtomicLong nodes = new AtomicLong();
+        final SearchStats stats = new SearchStats();
+        final int[] centrality; // Higher for cells closer to the center, for move ordering
+
+        volatile int rootDepth;
+        volatile boolean canAbort;
+        volatile boolean aborted;
+
+        Shared(BitBoard board, TranspositionTable table, SolvedPositions solved, Budget budget, boolean isParallel) {
+            this.table = table;
+            this.solved = solved;
+            this.rootStones = board.numStones;
+            this.isParallel = isParallel;
+            this.maxNodes = budget.nodes;
+            this.deadline = budget.deadline(System.nanoTime());
+            this.centrality = new int[board.numCells];
+            for (int cell = 0; cell < board.numCells; cell++) {
+                int distance = 0;
+                for (int d = 0, rest = cell; d < board.dimensions; d++, rest /= board.size) {
+                    distance += Math.abs(2 * (rest % board.size) - (board.size - 1));
+                }
+                centrality[cell] = Math.max(0, 0xFF - distance);
+            }
+        }
+    }
+
+    // Node whose moves after the first are searched in parallel (Young Brothers Wait).
+    // Siblings read alpha as raised by the others and are cancelled once it reaches beta
+    private static final class Split {
+        final Split parent;
+        final int beta;
+        final int depth;
+        volatile int alpha;
+        volatile int bestValue;
+        volatile int bestCell;
+        volatile boolean cancelled;
+
+        Split(Split parent, int alpha, int beta, int depth, int bestValue, int bestCell) {
+            this.parent = parent;
+            this.alpha = alpha;
+            this.beta = beta;
+            this.depth = depth;
+            this.bestValue = bestValue;
+            this.bestCell = bestCell;
+        }
+
+        synchronized void update(int value, int cell) {
+            if (value > bestValue) {
+                bestValue = value;
+                bestCell = cell;
+            }
+            if (value > alpha) alpha = value;
+            if (alpha >= beta) cancelled = true;
+        }
+    }
+
+    private Minimax(Shared shared, int maxDepth, int numCells) {
+        this.shared = shared;
+        this.moves = new int[maxDepth + 1][numCells];
+        this.orderKeys = new long[maxDepth + 1][numCells];
+        this.history = new int[2][numCells];
+        this.killers = new int[maxDepth + 1][NUM_KILLERS];
+    }
+
+    // Search of a subtree of parent's, searching at most maxDepth plies
+    private Minimax(Minimax parent, int maxDepth) {
+        this.shared = parent.shared;
+        int numCells = parent.history[0].length;
+        this.moves = new int[maxDepth + 1][numCells];
+        this.orderKeys = new long[maxDepth + 1][numCells];
+        this.history = new int[][]{parent.history[0].clone(), parent.history[1].clone()};
+        this.killers = new int[parent.killers.length][];
+        for (int ply = 0; ply < killers.length; ply++) {
+            killers[ply] = parent.killers[ply].clone();
+        }
+    }
+
+    // Returns {best cell, score for MAX} for player. With an unlimited budget the game is searched to the end,
+    // otherwise the search deepens one ply at a time and keeps the best move of the last finished depth
+    static int[] search(BitBoard board, int player, TranspositionTable table, Budget budget) {
+        return search(board, player, table, budget, 1, null);
+    }
+
+    // Same search on the given number of threads
+    static int[] search(BitBoard board, int player, TranspositionTable table, Budget budget, int parallelism) {
+        return search(board, player, table, budget, parallelism, null);
+    }
+
+    // Same search, adding its counters to stats unless it is null
+    static int[] search(BitBoard board, int player, TranspositionTable table, Budget budget, int parallelism,
+                        SearchStats stats) {
+        return search(board, player, table, budget, parallelism, stats, null);
+    }
+
+    // Same search, taking the value of every position stored in solved instead of searching it, unless it is null
+    static int[] search(BitBoard board, int player, TranspositionTable table, Budget budget, int parallelism,
+                        SearchStats stats, SolvedPositions solved) {
+        int maxDepth = board.numCells - board.numStones;
+        if (budget.iterations < maxDepth) maxDepth = (int) budget.iterations;
+
+        Shared shared = new Shared(board, table, solved, budget, parallelism > 1);
+        int[] result;
+        if (parallelism <= 1) {
+            result = deepen(board, player, shared, budget.isUnlimited(), maxDepth);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                int depth = maxDepth;
+                result = pool.invoke(new RecursiveTask<int[]>() {
+                    @Override
+                    protected int[] compute() {
+                        return deepen(board, player, shared, budget.isUnlimited(), depth);
+                    }
+                });
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        if (stats != null) stats.add(shared.stats);
+        result[1] *= player;
+        return result;
+    }
+
+    private static int[] deepen(BitBoard board, int player, Shared shared, boolean isUnlimited, int maxDepth) {
+        BitBoard state = board.copy();
+        Minimax search = new Minimax(shared, maxDepth, state.numCells);
+        int[] bestMove = {-1, 0};
+        for (int depth = isUnlimited ? maxDepth : 1; depth <= maxDepth; depth++) {
+            shared.rootDepth = depth;
+            int[] result = search.searchRoot(state, player, depth, bestMove[0]);
+            if (shared.aborted) break;
+
+            bestMove = result;
+            shared.canAbort = true;
+            synchronized (shared.stats) {
+                shared.stats.depth = depth;
+            }
+        }
+
+        return bestMove;
+    }
+
+    // Returns {best cell, score for player}, trying the best move of the previous depth first
+    private int[] searchRoot(BitBoard state, int player, int depth, int firstCell) {
+        int[] moves = this.moves[depth];
+        int numMoves = orderMoves(state, player, depth, firstCell);
+
+        int alpha = -INFINITY;
+        int[] bestMove = {-1, -INFINITY};
+        for (int i = 0; i < numMoves; i++) {
+            if (i == 1 && canSplit(depth)) {
+                Split split = searchSiblings(state, player, moves, i, numMoves, alpha, INFINITY, depth, null,
+                        bestMove[1], bestMove[0]);
+                bestMove[0] = split.bestCell;
+                bestMove[1] = split.bestValue;
+                break;
+            }
+
+            int result = searchMove(state, player, moves[i], i == 0, alpha, INFINITY, depth, null);
+            if (shared.aborted) break;
+
+            if (result > bestMove[1]) {
+                bestMove[0] = moves[i];
+                bestMove[1] = result;
+            }
+            if (result > alpha) alpha = result;
+        }
+
+        flush();
+        return bestMove;
+    }
+
+    // Plays cell and returns its score for player. Moves after the first are searched with a null window
+    // first, which only proves them no better than alpha, and again with the full window when that fails
+    private int searchMove(BitBoard state, int player, int cell, boolean isFirst, int alpha, int beta, int depth,
+                           Split split) {
+        state.play(cell, player);
+        int result;
+        if (isFirst) {
+            result = -negamax(state, -player, cell, -beta, -alpha, depth - 1, split);
+        } else {
+            result = -negamax(state, -player, cell, -alpha - 1, -alpha, depth - 1, split);
+            if (result > alpha && result < beta && !isStopped(split) && !abandoned) {
+                stats.researches++;
+                result = -negamax(state, -player, cell, -beta, -alpha, depth - 1, split);
+            }
+        }
+        state.undo(cell, player);
+        return result;
+    }
+
+    // Score of state for player, who is to move. lastCell is the move that led to state, only the lines
+    // through it need checking for a win. split is the closest node above that is searched in parallel, or null
+    private int negamax(BitBoard state, int player, int lastCell, int alpha, int beta, int depth, Split split) {
+        if (countNode() || isStopped(split)) return 0;
+        if (Metrics.ENABLED) stats.maxPly = Math.max(stats.maxPly, state.numStones - shared.rootStones);
+
+        // Return score if game is over, or an estimate once the depth runs out
+        int score = state.evaluate(lastCell);
+        if (score != NOT_OVER) return score * player * WIN_SCORE;
+
+        // Solved endgame positions are exact at any depth
+        if (shared.solved != null) {
+            score = shared.solved.probe(state, player);
+            if (score != NOT_OVER) {
+                stats.solvedHits++;
+                return score * player * WIN_SCORE;
+            }
+        }
+        if (depth == 0) return player * getHeuristicValue(state);
+
+        // Searching deeper than the number of empty cells gives the same result
+        depth = Math.min(depth, state.numCells - state.numStones);
+
+        // Reuse the result stored for this position or any rotation or reflection of it.
+        // Its best move is tried first even when it was searched less deep. Moves are stored in the
+        // orientation of the canonical key, which may be a rotation or reflection of this position
+        long key = state.getCanonicalKey(player);
+        int symmetry = state.canonicalSymmetry();
+        long entry = shared.table.probe(key);
+        int firstCell = -1;
+        if (entry == 0) {
+            stats.tableMisses++;
+        } else {
+            stats.tableHits++;
+            int cell = TranspositionTable.cell(entry);
+            if (cell >= 0) firstCell = state.untransform(cell, symmetry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int value = TranspositionTable.value(entry);
+                int flag = TranspositionTable.flag(entry);
+                if (flag == TranspositionTable.EXACT) return value;
+                if (flag == TranspositionTable.LOWER && value >= beta) return value;
+                if (flag == TranspositionTable.UPPER && value <= alpha) return value;
+            }
+        }
+
+        int originalAlpha = alpha;
+        int bestValue = -INFINITY;
+        int bestCell = -1;
+        int[] moves = this.moves[depth];
+        int numMoves = orderMoves(state, player, depth, firstCell);
+        for (int i = 0; i < numMoves; i++) {
+            if (i == 1 && canSplit(depth)) {
+                Split result = searchSiblings(state, player, moves, i, numMoves, alpha, beta, depth, split,
+                        bestValue, bestCell);
+                if (isStopped(split)) return 0;
+
+                bestValue = result.bestValue;
+                bestCell = result.bestCell;
+                if (bestValue >= beta) stats.cutoffs++;
+                break;
+            }
+
+            int cell = moves[i];
+            int result = searchMove(state, player, cell, i == 0, alpha, beta, depth, split);
+            if (isStopped(split)) return 0;
+
+            // Children of a parallel node narrow their window as the siblings raise its alpha
+            if (split != null && depth == split.depth - 1) {
+                beta = Math.min(beta, -split.alpha);
+                if (beta <= originalAlpha) {
+                    abandoned = true;
+                    return 0;
+                }
+            }
+
+            if (result > bestValue) {
+                bestValue = result;
+                bestCell = cell;
+            }
+            if (bestValue > alpha) alpha = bestValue;
+            if (alpha >= beta) {
+                recordCutoff(player, cell, depth, i);
+                break;
+            }
+        }
+
+        int flag = TranspositionTable.EXACT;
+        if (bestValue <= originalAlpha) {
+            flag = TranspositionTable.UPPER;
+        } else if (bestValue >= beta) {
+            flag = TranspositionTable.LOWER;
+        }
+        shared.table.store(key, bestValue, flag, depth, bestCell < 0 ? -1 : state.transform(bestCell, symmetry));
+        return bestValue;
+    }
+
+    // Fills this.moves[depth] with the empty cells, best first: firstCell, the killer moves of this ply,
+    // then by history score, open lines through the cell and closeness to the center. Returns their number
+    private int orderMoves(BitBoard state, int player, int depth, int firstCell) {
+        int[] moves = this.moves[depth];
+        long[] keys = orderKeys[depth];
+        int numMoves = state.getMoves(moves);
+
+        int[] history = this.history[player == MAX ? 0 : 1];
+        int[] killers = this.killers[shared.rootDepth - depth];
+        for (int i = 0; i < numMoves; i++) {
+            int cell = moves[i];
+            long priority = 0;
+            if (cell == firstCell) {
+                priority = 3;
+            } else if (cell == killers[0] - 1) {
+                priority = 2;
+            } else if (cell == killers[1] - 1) {
+                priority = 1;
+            }
+
+            // Bits from the top: priority, history, open lines, centrality, cell
+            long key = priority << 60 | (long) history[cell] << 31
+                    | (long) Math.min(state.countOpenLines(cell), 0xFF) << 23
+                    | (long) shared.centrality[cell] << 15 | cell;
+            keys[i] = -key;
+        }
+
+        Arrays.sort(keys, 0, numMoves);
+        for (int i = 0; i < numMoves; i++) {
+            moves[i] = (int) (-keys[i] & 0x7FFF);
+        }
+        return numMoves;
+    }
+
+    private void recordCutoff(int player, int cell, int depth, int index) {
+        stats.cutoffs++;
+        if (index == 0) stats.firstMoveCutoffs++;
+
+        int[] killers = this.killers[shared.rootDepth - depth];
+        if (killers[0] != cell + 1) {
+            killers[1] = killers[0];
+            killers[0] = cell + 1;
+        }
+
+        int[] history = this.history[player == MAX ? 0 : 1];
+        history[cell] += depth * depth;
+        if (history[cell] > MAX_HISTORY) {
+            for (int c = 0; c < history.length; c++) {
+                history[c] /= 2;
+            }
+        }
+    }
+
+    private boolean canSplit(int depth) {
+        return shared.isParallel && depth >= MIN_SPLIT_DEPTH && shared.rootDepth - depth <= MAX_SPLIT_PLY;
+    }
+
+    // Searches moves[from] to moves[numMoves - 1] as parallel tasks, once the moves before have raised alpha
+    private Split searchSiblings(BitBoard state, int player, int[] moves, int from, int numMoves, int alpha, int beta,
+                                 int depth, Split parent, int bestValue, int bestCell) {
+        Split split = new Split(parent, alpha, beta, depth, bestValue, bestCell);
+
+        List<RecursiveAction> siblings = new ArrayList<>();
+        for (int i = from; i < numMoves; i++) {
+            int cell = moves[i];
+            BitBoard child = state.copy();
+            Minimax search = new Minimax(this, depth - 1);
+            siblings.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    if (split.cancelled) return;
+
+                    // Searched again against the raised alpha until a search finishes with an open window
+                    int result;
+                    do {
+                        search.abandoned = false;
+                        result = search.searchMove(child, player, cell, false, split.alpha, split.beta, depth, split);
+                    } while (search.abandoned && !search.isStopped(split));
+                    search.flush();
+                    if (!search.isStopped(split)) split.update(result, cell);
+                }
+            });
+        }
+        ForkJoinTask.invokeAll(siblings);
+
+        return split;
+    }
+
+    // Counts a visited node and returns true once the search has to stop
+    private boolean countNode() {
+        if (++stats.nodes % NODE_BATCH != 0) return shared.aborted;
+
+        long total = shared.nodes.addAndGet(NODE_BATCH);
+        if (shared.canAbort && (total > shared.maxNodes || System.nanoTime() >= shared.deadline)) {
+            shared.aborted = true;
+        }
+        return shared.aborted;
+    }
+
+    // Adds the counters of this thread to the shared ones
+    private void flush() {
+        shared.nodes.addAndGet(stats.nodes % NODE_BATCH);
+        synchronized (shared.stats) {
+            shared.stats.add(stats);
+        }
+        stats.clear();
+    }
+
+    // True when the search ran out of budget or a node above was cut off by a sibling
+    private boolean isStopped(Split split) {
+        if (shared.aborted) return true;
+        for (; split != null; split = split.parent) {
+            if (split.cancelled) return true;
+        }
+        return false;
+    }
+
+    // Open lines of MAX minus open lines of MIN, weighted by how many stones they already hold
+    static int getHeuristicValue(BitBoard state) {
+        int value = 0;
+        for (int line = 0; line < state.numLines; line++) {
+            int maxCount = state.countStones(line, MAX);
+            int minCount = state.countStones(line, MIN);
+            if (minCount == 0) {
+                value += LINE_WEIGHTS[Math.min(maxCount, LINE_WEIGHTS.length - 1)];
+            } else if (maxCount == 0) {
+                value -= LINE_WEIGHTS[Math.min(minCount, LINE_WEIGHTS.length - 1)];
+            }
+        }
+        return value;
+    }
+}
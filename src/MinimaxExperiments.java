@@ -0,0 +1,120 @@
+import java.util.ArrayList;
+import java.util.List;
+
+// Measurements that compare minimax searches against each other in one run: the speedup over threads and of
+// batch search over one call per position, checking that every configuration finds the same values.
+// JMH times a single configuration, so these are plain runs, and the JMH benchmarks module covers single searches
+public class MinimaxExperiments {
+
+    // Position after the given number of random moves in which nobody has won yet
+    private static BitBoard createPosition(int dimensions, int size, int length, int stones) {
+        Rng random = new XorShiftRng(7);
+        BitBoard board = new BitBoard(dimensions, size, length);
+        int[] moves = new int[board.numCells];
+        do {
+            board.clear();
+            int player = BitBoard.MAX;
+            for (int i = 0; i < stones && board.evaluate() == BitBoard.NOT_OVER; i++) {
+                board.play(moves[random.nextInt(board.getMoves(moves))], player);
+                player = -player;
+            }
+        } while (board.evaluate() != BitBoard.NOT_OVER);
+        return board;
+    }
+
+    // Solves the position to the end, or to the given depth, with 1 up to all available threads
+    private static void measure(int dimensions, int size, int length, int stones, int depth, int maxThreads) {
+        BitBoard board = createPosition(dimensions, size, length, stones);
+        int player = board.numStones % 2 == 0 ? BitBoard.MAX : BitBoard.MIN;
+        Budget budget = depth < 0 ? Budget.unlimited() : new Budget().iterations(depth);
+        TranspositionTable table = new TranspositionTable(22);
+
+        // Warm up the JIT before timing anything
+        Minimax.search(board, player, table, budget);
+
+        double baseline = 0;
+        int serialScore = 0;
+        for (int numThreads = 1; ; numThreads = Math.min(numThreads * 2, maxThreads)) {
+            table.clear();
+            SearchStats stats = new SearchStats();
+            long start = System.nanoTime();
+            int[] result = Minimax.search(board, player, table, budget, numThreads, stats);
+            double millis = (System.nanoTime() - start) / 1e6;
+
+            if (numThreads == 1) {
+                baseline = millis;
+                serialScore = result[1];
+            }
+            System.out.printf("%dD size %d, %d in a row, %2d stones, depth %-4s threads: %2d  ms: %9.1f  speedup: %.2fx  nodes: %10d%s%n",
+                    dimensions, size, length, board.numStones, depth < 0 ? "end" : String.valueOf(depth),
+                    numThreads, millis, baseline / millis, stats.nodes, result[1] == serialScore ? "" : "  score differs");
+
+            if (numThreads == maxThreads) break;
+        }
+    }
+
+    // Every position with at least minStones stones of numGames random games, searched one call at a time with
+    // a cleared table as a caller looping over them would, then as one batch on 1 up to all available threads
+    private static void measureBatch(int dimensions, int numGames, int minStones, int depth, int tableBits,
+                                     int maxThreads)
+            throws Exception {
+        Rng random = new XorShiftRng(13);
+        List<BitBoard> list = new ArrayList<>();
+        BitBoard board = new BitBoard(dimensions);
+        int[] moves = new int[board.numCells];
+        for (int game = 0; game < numGames; game++) {
+            board.clear();
+            int player = BitBoard.MAX;
+            while (board.evaluate() == BitBoard.NOT_OVER) {
+                if (board.numStones >= minStones) list.add(board.copy());
+                board.play(moves[random.nextInt(board.getMoves(moves))], player);
+                player = -player;
+            }
+        }
+        BitBoard[] positions = list.toArray(new BitBoard[0]);
+        Budget budget = depth < 0 ? Budget.unlimited() : new Budget().iterations(depth);
+
+        TranspositionTable table = new TranspositionTable(tableBits);
+        int[][] expected = new int[positions.length][];
+        long start = System.nanoTime();
+        for (int i = 0; i < positions.length; i++) {
+            BitBoard position = positions[i];
+            table.clear();
+            expected[i] = Minimax.search(position, position.numStones % 2 == 0 ? BitBoard.MAX : BitBoard.MIN,
+                    table, budget);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%dD %5d positions, depth %-4s one call each    positions/s: %9.0f%n",
+                dimensions, positions.length, depth < 0 ? "end" : String.valueOf(depth), positions.length / seconds);
+
+        for (int numThreads = 1; ; numThreads = Math.min(numThreads * 2, maxThreads)) {
+            start = System.nanoTime();
+            int[][] results = BatchSearch.search(positions, budget, numThreads, tableBits);
+            seconds = (System.nanoTime() - start) / 1e9;
+
+            int numDiffering = 0;
+            for (int i = 0; i < positions.length; i++) {
+                if (results[i][1] != expected[i][1]) numDiffering++;
+            }
+            System.out.printf("%dD %5d positions, depth %-4s batch, threads: %2d  positions/s: %9.0f  values differing: %d%n",
+                    dimensions, positions.length, depth < 0 ? "end" : String.valueOf(depth), numThreads,
+                    positions.length / seconds, numDiffering);
+
+            if (numThreads == maxThreads) break;
+        }
+    }
+
+    // The number of threads to go up to can be given as argument
+    public static void main(String[] args) throws Exception {
+        int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        measure(3, 3, 3, 6, -1, maxThreads);
+        measure(3, 3, 3, 4, -1, maxThreads);
+        measure(2, 4, 4, 2, -1, maxThreads);
+        measure(2, 5, 4, 2, 6, maxThreads);
+        measure(3, 4, 4, 4, 4, maxThreads);
+        measure(2, 15, 5, 4, 3, maxThreads);
+        measureBatch(2, 2000, 0, -1, 16, maxThreads);
+        measureBatch(3, 200, 6, -1, 20, maxThreads);
+    }
+
+}
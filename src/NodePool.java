@@ -0,0 +1,184 @@
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Search tree stored as parallel arrays, a node is an index and the children of a node are a linked list
+// in the order they were added. Children are allocated in blocks of 1, 2, 4... nodes, so most of them are
+// consecutive while a node holds at most twice the nodes it uses
+class NodePool {
+
+    static final int ROOT = 0;
+    static final int EXPANDING = -1;
+
+    // Six atomic int arrays, parents, firstChild and nextSibling, a short cell and nextMove, a byte player and proven
+    static final int BYTES_PER_NODE = 9 * 4 + 2 * 2 + 2;
+
+    // Visit counts told apart when choosing nodes to drop, higher counts are all kept first
+    private static final int TRIES_BUCKETS = 1024;
+
+    final int capacity;
+
+    // Updated concurrently by searching threads
+    final AtomicIntegerArray points;
+    final AtomicIntegerArray numTries;
+    final AtomicIntegerArray virtualLoss;
+    final AtomicIntegerArray numChildren; // EXPANDING while a thread adds a child
+
+    // All-moves-as-first statistics of the node's move: playouts through the parent in which the player
+    // who moves into the node played its cell at any point, kept only while MCTS uses RAVE
+    final AtomicIntegerArray amafPoints;
+    final AtomicIntegerArray amafTries;
+
+    // Written once when the node is allocated, published by the parent's numChildren
+    final int[] parents;
+    final short[] cells;
+    final byte[] players;
+
+    // Result of the node's position once it is known for sure, NOT_OVER until then. Only ever set from NOT_OVER
+    // to a result, so a thread reading it late only misses a proof
+    final byte[] proven;
+
+    // Written by the thread adding a child, published by numChildren. A thread that read numChildren
+    // follows only that many links, so it never reads the link to a child being added
+    final int[] firstChild;
+    final int[] nextSibling; // -1 for the last child
+    final short[] nextMove; // Index in the move order of the next move to try for a new child
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    NodePool(int capacity) {
+        this.capacity = capacity;
+        this.points = new AtomicIntegerArray(capacity);
+        this.numTries = new AtomicIntegerArray(capacity);
+        this.virtualLoss = new AtomicIntegerArray(capacity);
+        this.numChildren = new AtomicIntegerArray(capacity);
+        this.amafPoints = new AtomicIntegerArray(capacity);
+        this.amafTries = new AtomicIntegerArray(capacity);
+        this.parents = new int[capacity];
+        this.cells = new short[capacity];
+        this.players = new byte[capacity];
+        this.proven = new byte[capacity];
+        this.firstChild = new int[capacity];
+        this.nextSibling = new int[capacity];
+        this.nextMove = new short[capacity];
+    }
+
+    // Drops every node, the root is allocated again by the next search
+    void reset() {
+        size.set(0);
+    }
+
+    int size() {
+        return size.get();
+    }
+
+    // Reserves count consecutive nodes and returns the first, or -1 when the pool is full
+    int allocate(int count) {
+        while (true) {
+            int first = size.get();
+            if (first + count > capacity) return -1;
+            if (size.compareAndSet(first, first + count)) return first;
+        }
+    }
+
+    // Ordered stores are enough, the node is published by the volatile numChildren store of its parent
+    void init(int node, int parent, int cell, int player) {
+        points.lazySet(node, 0);
+        numTries.lazySet(node, 0);
+        virtualLoss.lazySet(node, 0);
+        numChildren.lazySet(node, 0);
+        amafPoints.lazySet(node, 0);
+        amafTries.lazySet(node, 0);
+        parents[node] = parent;
+        cells[node] = (short) cell;
+        players[node] = (byte) player;
+        proven[node] = BitBoard.NOT_OVER;
+        firstChild[node] = -1;
+        nextSibling[node] = -1;
+        nextMove[node] = 0;
+    }
+
+    // Slots reserved for the first numChildren children of a node, the end of the block holding the last of them
+    static int reservedChildren(int numChildren) {
+        return numChildren == 0 ? 0 : Integer.highestOneBit(numChildren) * 2 - 1;
+    }
+
+    // Child number index of node, counting from 0
+    int getChild(int node, int index) {
+        int child = firstChild[node];
+        for (int i = 0; i < index; i++) {
+            child = nextSibling[child];
+        }
+        return child;
+    }
+
+    // Rebuilds this pool as a copy of the subtree below node in source, with node as the new root.
+    // Nodes are copied breadth first, so the children of a node end up consecutive
+    void copySubtree(NodePool source, int node) {
+        copySubtree(source, node, 0);
+    }
+
+    // Same, copying the children of the new root and of the nodes visited at least minTries times.
+    // Other nodes become leaves, keeping their statistics, and get their children again when selected
+    void copySubtree(NodePool source, int node, int minTries) {
+        reset();
+        allocate(1);
+        init(ROOT, -1, source.cells[node], source.players[node]);
+        points.set(ROOT, source.points.get(node));
+        numTries.set(ROOT, source.numTries.get(node));
+        amafPoints.set(ROOT, source.amafPoints.get(node));
+        amafTries.set(ROOT, source.amafTries.get(node));
+        proven[ROOT] = source.proven[node];
+        firstChild[ROOT] = node; // Source index until the node's children are copied
+
+        for (int copy = 0; copy < size(); copy++) {
+            int original = firstChild[copy];
+            if (original < 0) continue; // Reserved for later children
+
+            int count = Math.max(source.numChildren.get(original), 0);
+            if (copy != ROOT && source.numTries.get(original) < minTries) count = 0;
+            int first = count > 0 ? allocate(reservedChildren(count)) : -1;
+            if (first < 0) {
+                firstChild[copy] = -1;
+                continue;
+            }
+
+            int child = source.firstChild[original];
+            for (int i = 0; i < count; i++, child = source.nextSibling[child]) {
+                init(first + i, copy, source.cells[child], source.players[child]);
+                points.lazySet(first + i, source.points.get(child));
+                numTries.lazySet(first + i, source.numTries.get(child));
+                amafPoints.lazySet(first + i, source.amafPoints.get(child));
+                amafTries.lazySet(first + i, source.amafTries.get(child));
+                proven[first + i] = source.proven[child];
+                firstChild[first + i] = child;
+                if (i > 0) nextSibling[first + i - 1] = first + i;
+            }
+            for (int i = count; i < reservedChildren(count); i++) {
+                firstChild[first + i] = -1;
+                numChildren.lazySet(first + i, 0);
+            }
+            firstChild[copy] = first;
+            nextMove[copy] = source.nextMove[original];
+            numChildren.set(copy, count);
+        }
+    }
+
+    // Smallest visit count for copySubtree that keeps at most maxNodes nodes of this tree, or Integer.MAX_VALUE
+    // when only the root and its children fit. Expects no thread to be changing the tree
+    int minTriesToKeep(int maxNodes) {
+        int[] children = new int[TRIES_BUCKETS];
+        for (int node = ROOT + 1; node < size(); node++) {
+            int count = numChildren.get(node);
+            if (count > 0) children[Math.min(numTries.get(node), TRIES_BUCKETS - 1)] += reservedChildren(count);
+        }
+
+        // A child has no more visits than its parent, so whole paths from the root are kept
+        int kept = 1 + reservedChildren(Math.max(numChildren.get(ROOT), 0));
+        int minTries = Integer.MAX_VALUE;
+        for (int tries = TRIES_BUCKETS - 1; tries >= 0 && kept + children[tries] <= maxNodes; tries--) {
+            kept += children[tries];
+            minTries = tries;
+        }
+        return minTries;
+    }
+}
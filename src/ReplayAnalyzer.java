@@ -0,0 +1,105 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Replays every game of a record file through evaluate, one chunk in memory at a time, and prints the results
+// by board shape and player, how often each first move was played and how the first player did with it.
+// A game whose moves do not lead to its stored result, or that goes on after it is over, is counted as invalid
+public class ReplayAnalyzer {
+
+    // Results of MAX, DRAW and MIN in that order
+    private static final class Tally {
+        final long[] counts = new long[3];
+        long numMoves;
+
+        void add(int result, int numMoves) {
+            counts[1 - result]++;
+            this.numMoves += numMoves;
+        }
+
+        long total() {
+            return counts[0] + counts[1] + counts[2];
+        }
+
+        String print() {
+            long total = total();
+            return String.format("%d games, first player %d wins (%.1f%%), %d draws, %d losses, %.1f moves per game",
+                    total, counts[0], 100.0 * counts[0] / total, counts[1], counts[2], (double) numMoves / total);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String file = args.length > 0 ? args[0] : "games.rec";
+
+        Map<String, BitBoard> boards = new HashMap<>();
+        Map<String, Tally> byShape = new HashMap<>();
+        Map<String, Tally> byPlayers = new HashMap<>();
+        Map<String, Tally> byFirstMove = new HashMap<>();
+        GameRecord record = new GameRecord();
+        long numInvalid = 0;
+        long start = System.nanoTime();
+
+        boolean isDamaged;
+        try (GameRecordReader reader = new GameRecordReader(Paths.get(file))) {
+            while (reader.next(record)) {
+                String shape = record.dimensions + "D size " + record.size + ", " + record.length + " in a row";
+                BitBoard board = boards.computeIfAbsent(shape,
+                        k -> new BitBoard(record.dimensions, record.size, record.length));
+                if (!replay(board, record)) {
+                    numInvalid++;
+                    continue;
+                }
+
+                byShape.computeIfAbsent(shape, k -> new Tally()).add(record.result, record.numMoves);
+                byPlayers.computeIfAbsent(shape + ", " + record.first + " first against " + record.second,
+                        k -> new Tally()).add(record.result, record.numMoves);
+                if (record.numMoves > 0) {
+                    byFirstMove.computeIfAbsent(shape + ", first move " + record.moves[0],
+                            k -> new Tally()).add(record.result, record.numMoves);
+                }
+            }
+            isDamaged = reader.isDamaged();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long numGames = 0;
+        for (Tally tally : byShape.values()) {
+            numGames += tally.total();
+        }
+        System.out.printf("%d games replayed in %.1f s (%.0f games/s), %d invalid%s%n", numGames, seconds,
+                numGames / seconds, numInvalid, isDamaged ? ", stopped at a damaged chunk" : "");
+        print("By board", byShape, Integer.MAX_VALUE);
+        print("By players", byPlayers, Integer.MAX_VALUE);
+        print("Most played first moves", byFirstMove, 10);
+    }
+
+    // Plays the game on board and checks that it ends with its last move, in the stored result
+    private static boolean replay(BitBoard board, GameRecord record) {
+        board.clear();
+        int player = BitBoard.MAX;
+        int result = board.evaluate();
+        for (int i = 0; i < record.numMoves; i++) {
+            int cell = record.moves[i];
+            if (result != BitBoard.NOT_OVER || cell >= board.numCells || board.get(cell) != BitBoard.EMPTY) return false;
+            board.play(cell, player);
+            result = board.evaluate(cell);
+            player = -player;
+        }
+        return result == record.result && result != BitBoard.NOT_OVER;
+    }
+
+    // The limit most played lines, most played first
+    private static void print(String title, Map<String, Tally> tallies, int limit) {
+        List<Map.Entry<String, Tally>> entries = new ArrayList<>(tallies.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue().total(), a.getValue().total()));
+
+        System.out.println();
+        System.out.println(title + ":");
+        for (Map.Entry<String, Tally> entry : entries.subList(0, Math.min(limit, entries.size()))) {
+            System.out.println("  " + entry.getKey() + ": " + entry.getValue().print());
+        }
+    }
+}
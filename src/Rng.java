@@ -0,0 +1,10 @@
+// Random source for rollouts and random players. Implementations need not be thread safe,
+// every thread gets its own stream from split()
+interface Rng {
+
+    // Uniform in [0, bound)
+    int nextInt(int bound);
+
+    // Independent generator whose sequence is fixed by this generator's state
+    Rng split();
+}
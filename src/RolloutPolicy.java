@@ -0,0 +1,27 @@
+// Chooses the moves of MCTS playouts, shared by every searching thread so it must not keep state
+interface RolloutPolicy {
+
+    // Uniformly random moves
+    RolloutPolicy RANDOM = (state, player, lastCell, previousCell, moves, numMoves, random) -> random.nextInt(numMoves);
+
+    // Completes a line when it can, else blocks a line the opponent would complete, else plays at random.
+    // A line of player's can only have become one stone short through player's previous move, and one of the
+    // opponent's through the last move, older ones were taken or blocked already. Until the playout made
+    // both moves itself every line is checked
+    RolloutPolicy TACTICAL = (state, player, lastCell, previousCell, moves, numMoves, random) -> {
+        boolean isTracked = previousCell >= 0;
+        int cell = isTracked ? state.findCompletingCell(previousCell, player) : state.findCompletingCell(player);
+        if (cell < 0) cell = isTracked ? state.findCompletingCell(lastCell, -player) : state.findCompletingCell(-player);
+        if (cell < 0) return random.nextInt(numMoves);
+
+        int index = 0;
+        while (moves[index] != cell) {
+            index++;
+        }
+        return index;
+    };
+
+    // Index of the move player makes among the first numMoves entries of moves, the empty cells of state.
+    // lastCell and previousCell are the cells of the last two moves of the playout, -1 until it made them
+    int select(BitBoard state, int player, int lastCell, int previousCell, int[] moves, int numMoves, Rng random);
+}
@@ -0,0 +1,56 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Appends one JSON object per line for every searched move: where it was searched, the engine, the position,
+// the move, how long it took and the counters of the search. Every line is flushed whole, so the file can be followed
+// while it grows and a crash loses at most the line being written. Safe to share between threads
+class SearchReport implements Closeable {
+
+    // Counters of one search, written as the fields of a JSON object without the braces
+    interface Counters {
+        void appendJson(StringBuilder json);
+    }
+
+    private final BufferedWriter out;
+
+    SearchReport(Path file) throws IOException {
+        out = Files.newBufferedWriter(file, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    // Source names the caller and game its game or session. board is the position before cell was played by player.
+    // Engine specs and sources are written as they are, they must not hold quotes
+    void write(String source, long game, String engine, BitBoard board, int player, int cell, long nanos,
+               Counters counters) throws IOException {
+        StringBuilder json = new StringBuilder(256);
+        json.append("{\"time\":").append(System.currentTimeMillis())
+                .append(",\"source\":\"").append(source)
+                .append("\",\"game\":").append(game)
+                .append(",\"engine\":\"").append(engine)
+                .append("\",\"board\":\"").append(board.dimensions).append('x').append(board.size)
+                .append('x').append(board.length)
+                .append("\",\"stones\":").append(board.numStones)
+                .append(",\"player\":").append(player)
+                .append(",\"cell\":").append(cell)
+                .append(",\"nanos\":").append(nanos)
+                .append(",\"metrics\":").append(Metrics.ENABLED)
+                .append(',');
+        counters.appendJson(json);
+        json.append("}\n");
+
+        synchronized (this) {
+            out.write(json.toString());
+            out.flush();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
@@ -0,0 +1,58 @@
+// Counters of minimax searches, summed over every searching thread
+class SearchStats implements SearchReport.Counters {
+
+    long nodes;
+    long cutoffs; // Nodes left before trying every move because one reached beta
+    long firstMoveCutoffs; // Cutoffs by the first move tried, the closer to cutoffs the better the ordering
+    long researches; // Null window searches that failed high and were searched again with the full window
+    long solvedHits; // Positions answered by the solved positions instead of searched
+    long tableHits; // Transposition table probes that found the position
+    long tableMisses;
+    int depth; // Deepest iteration finished
+    int maxPly; // Deepest node visited below the root, only kept while Metrics is enabled
+
+    void add(SearchStats other) {
+        nodes += other.nodes;
+        cutoffs += other.cutoffs;
+        firstMoveCutoffs += other.firstMoveCutoffs;
+        researches += other.researches;
+        solvedHits += other.solvedHits;
+        tableHits += other.tableHits;
+        tableMisses += other.tableMisses;
+        depth = Math.max(depth, other.depth);
+        maxPly = Math.max(maxPly, other.maxPly);
+    }
+
+    void clear() {
+        nodes = 0;
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+        researches = 0;
+        solvedHits = 0;
+        tableHits = 0;
+        tableMisses = 0;
+        depth = 0;
+        maxPly = 0;
+    }
+
+    @Override
+    public void appendJson(StringBuilder json) {
+        json.append("\"nodes\":").append(nodes)
+                .append(",\"cutoffs\":").append(cutoffs)
+                .append(",\"firstMoveCutoffs\":").append(firstMoveCutoffs)
+                .append(",\"researches\":").append(researches)
+                .append(",\"solvedHits\":").append(solvedHits)
+                .append(",\"tableHits\":").append(tableHits)
+                .append(",\"tableMisses\":").append(tableMisses)
+                .append(",\"depth\":").append(depth)
+                .append(",\"maxPly\":").append(maxPly);
+    }
+
+    @Override
+    public String toString() {
+        return nodes + " nodes, " + cutoffs + " cutoffs (" + firstMoveCutoffs + " by the first move), "
+                + researches + " re-searches, " + solvedHits + " solved positions, " + tableHits + " table hits, "
+                + tableMisses + " misses, depth " + depth
+                + ", deepest ply " + maxPly;
+    }
+}
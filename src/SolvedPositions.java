@@ -0,0 +1,293 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// Game-theoretic value of every position of a board shape that holds at least minStones stones and is not over yet,
+// solved backwards from the full board. Built offline by main, saved to a file and memory-mapped by the engines.
+// A position shares its entry with its rotations and reflections, so best moves are found by probing the children
+class SolvedPositions {
+
+    private static final int MAX = BitBoard.MAX;
+    private static final int MIN = BitBoard.MIN;
+    private static final int NOT_OVER = BitBoard.NOT_OVER;
+
+    private static final int MAGIC = 0x54545442;
+    private static final int VERSION = 1;
+
+    // Magic, version, dimensions, size, length, minStones, bits and numPositions as ints, followed by the slots
+    private static final int HEADER_BYTES = 32;
+
+    final int dimensions;
+    final int size;
+    final int length;
+    final int minStones;
+    final int numPositions;
+
+    // Open addressing table of 2^bits slots, each the canonical key of a position with the value plus two
+    // in its lowest two bits, or 0 when empty. The player to move is given by the number of stones
+    private final int bits;
+    private final LongBuffer slots;
+
+    private SolvedPositions(int dimensions, int size, int length, int minStones, int numPositions, int bits,
+                            LongBuffer slots) {
+        this.dimensions = dimensions;
+        this.size = size;
+        this.length = length;
+        this.minStones = minStones;
+        this.numPositions = numPositions;
+        this.bits = bits;
+        this.slots = slots;
+    }
+
+    // Returns MAX or MIN when that player wins with best play from the position with player to move, DRAW,
+    // or NOT_OVER when the position is not stored: it has fewer than minStones stones, the game is over, or
+    // player is not the one the number of stones gives, as the table only holds games MAX started
+    int probe(BitBoard board, int player) {
+        if (board.numStones < minStones || player != toMove(board)) return NOT_OVER;
+
+        long key = board.getCanonicalKey(player) & ~3L;
+        int mask = (1 << bits) - 1;
+        for (int index = indexOf(key); ; index = (index + 1) & mask) {
+            long slot = slots.get(index);
+            if (slot == 0) return NOT_OVER;
+            if ((slot & ~3L) == key) return (int) (slot & 3) - 2;
+        }
+    }
+
+    // Returns a move keeping the value of the position for player, or -1 when the position is not stored
+    int bestCell(BitBoard board, int player) {
+        int value = probe(board, player);
+        if (value == NOT_OVER) return -1;
+
+        BitBoard state = board.copy();
+        int[] moves = new int[state.numCells];
+        int numMoves = state.getMoves(moves);
+        for (int i = 0; i < numMoves; i++) {
+            int cell = moves[i];
+            state.play(cell, player);
+            int result = state.evaluate(cell);
+            if (result == NOT_OVER) result = probe(state, -player);
+            state.undo(cell, player);
+            if (result == value) return cell;
+        }
+        throw new IllegalStateException("No move keeps the stored value, the table is broken");
+    }
+
+    private static int toMove(BitBoard board) {
+        return board.numStones % 2 == 0 ? MAX : MIN;
+    }
+
+    boolean isFor(BitBoard board) {
+        return board.dimensions == dimensions && board.size == size && board.length == length;
+    }
+
+    // Enumerates every position with minStones stones in which nobody has won, then every position reachable
+    // from them, and gives each a value from the positions one stone further on, starting from the full board
+    static SolvedPositions solve(int dimensions, int size, int length, int minStones) {
+        Solver solver = new Solver(new BitBoard(dimensions, size, length), minStones);
+        solver.solve();
+        return new SolvedPositions(dimensions, size, length, minStones, solver.numPositions,
+                Integer.numberOfTrailingZeros(solver.slots.length), LongBuffer.wrap(solver.slots));
+    }
+
+    void save(Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.putInt(MAGIC).putInt(VERSION).putInt(dimensions).putInt(size).putInt(length)
+                .putInt(minStones).putInt(bits).putInt(numPositions);
+        header.flip();
+
+        ByteBuffer data = ByteBuffer.allocate(8 << bits);
+        LongBuffer view = slots.duplicate();
+        view.clear();
+        data.asLongBuffer().put(view);
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) channel.write(header);
+            while (data.hasRemaining()) channel.write(data);
+        }
+    }
+
+    // Maps a file written by save, its slots are read straight from the page cache
+    static SolvedPositions load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.limit() < HEADER_BYTES || mapped.getInt() != MAGIC) {
+                throw new IOException(file + " holds no solved positions");
+            }
+            if (mapped.getInt() != VERSION) throw new IOException(file + " was written by another version");
+
+            int dimensions = mapped.getInt();
+            int size = mapped.getInt();
+            int length = mapped.getInt();
+            int minStones = mapped.getInt();
+            int bits = mapped.getInt();
+            int numPositions = mapped.getInt();
+            if (bits < 0 || bits > 30 || mapped.remaining() != 8L << bits) throw new IOException(file + " is truncated");
+
+            return new SolvedPositions(dimensions, size, length, minStones, numPositions, bits,
+                    mapped.slice().asLongBuffer());
+        }
+    }
+
+    private int indexOf(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+    }
+
+    // Positions found so far, stored by canonical key and listed by number of stones
+    private static final class Solver {
+
+        private final BitBoard board;
+        private final int minStones;
+        long[] slots = new long[1 << 10];
+        int numPositions;
+
+        // Stones of the positions with each number of stones, MAX stones at even and MIN stones at odd indexes
+        private final long[][] levels;
+        private final int[] levelSizes;
+
+        Solver(BitBoard board, int minStones) {
+            if (board.numCells > 64) throw new IllegalArgumentException("Only boards of up to 64 cells can be solved");
+            this.board = board;
+            this.minStones = Math.max(minStones, 0);
+            this.levels = new long[board.numCells + 1][16];
+            this.levelSizes = new int[board.numCells + 1];
+        }
+
+        void solve() {
+            int numCells = board.numCells;
+            if (minStones >= numCells) return;
+
+            placeStones(0, (minStones + 1) / 2, minStones / 2);
+            for (int stones = minStones; stones < numCells - 1; stones++) {
+                int player = stones % 2 == 0 ? MAX : MIN;
+                for (int i = 0; i < levelSizes[stones]; i++) {
+                    setPosition(stones, i);
+                    for (long empty = ~(board.maxStones[0] | board.minStones[0]) & fullMask(); empty != 0; empty &= empty - 1) {
+                        int cell = Long.numberOfTrailingZeros(empty);
+                        board.play(cell, player);
+                        if (board.evaluate(cell) == NOT_OVER) add();
+                        board.undo(cell, player);
+                    }
+                }
+            }
+
+            // Retrograde pass, every child of a position is over or solved one level further on
+            for (int stones = numCells - 1; stones >= minStones; stones--) {
+                int player = stones % 2 == 0 ? MAX : MIN;
+                for (int i = 0; i < levelSizes[stones]; i++) {
+                    setPosition(stones, i);
+                    int value = -player;
+                    for (long empty = ~(board.maxStones[0] | board.minStones[0]) & fullMask(); empty != 0 && value != player; empty &= empty - 1) {
+                        int cell = Long.numberOfTrailingZeros(empty);
+                        board.play(cell, player);
+                        int result = board.evaluate(cell);
+                        if (result == NOT_OVER) result = (int) (slots[find(key())] & 3) - 2;
+                        board.undo(cell, player);
+                        if (result * player > value * player) value = result;
+                    }
+                    int index = find(key());
+                    slots[index] = slots[index] & ~3L | (value + 2);
+                }
+                levels[stones] = null;
+            }
+        }
+
+        // Tries every way to place the remaining stones on the cells from cell on, without completing a line
+        private void placeStones(int cell, int maxLeft, int minLeft) {
+            int cellsLeft = board.numCells - cell;
+            if (maxLeft + minLeft == 0) {
+                add();
+                return;
+            }
+            if (maxLeft + minLeft > cellsLeft) return;
+
+            if (maxLeft + minLeft < cellsLeft) placeStones(cell + 1, maxLeft, minLeft);
+            if (maxLeft > 0) placeStone(cell, MAX, maxLeft - 1, minLeft);
+            if (minLeft > 0) placeStone(cell, MIN, maxLeft, minLeft - 1);
+        }
+
+        private void placeStone(int cell, int player, int maxLeft, int minLeft) {
+            board.play(cell, player);
+            if (board.evaluate(cell) == NOT_OVER) placeStones(cell + 1, maxLeft, minLeft);
+            board.undo(cell, player);
+        }
+
+        // Adds the position on the board unless it or a rotation or reflection of it was added before
+        private void add() {
+            long key = key();
+            int index = find(key);
+            if (slots[index] != 0) return;
+
+            slots[index] = key;
+            numPositions++;
+            int stones = board.numStones;
+            long[] level = levels[stones];
+            int position = levelSizes[stones]++;
+            if (2 * position + 2 > level.length) levels[stones] = level = Arrays.copyOf(level, 2 * level.length);
+            level[2 * position] = board.maxStones[0];
+            level[2 * position + 1] = board.minStones[0];
+
+            // Keep the table at most half full
+            if (2 * numPositions > slots.length) grow();
+        }
+
+        private void setPosition(int stones, int position) {
+            board.clear();
+            board.maxStones[0] = levels[stones][2 * position];
+            board.minStones[0] = levels[stones][2 * position + 1];
+            board.numStones = stones;
+        }
+
+        private long key() {
+            return board.getCanonicalKey(toMove(board)) & ~3L;
+        }
+
+        private long fullMask() {
+            return board.numCells == 64 ? -1L : (1L << board.numCells) - 1;
+        }
+
+        // Slot holding key, or the empty slot where it belongs
+        private int find(long key) {
+            int bits = Integer.numberOfTrailingZeros(slots.length);
+            int mask = slots.length - 1;
+            int index = (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+            while (slots[index] != 0 && (slots[index] & ~3L) != key) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        private void grow() {
+            long[] old = slots;
+            slots = new long[2 * old.length];
+            for (long slot : old) {
+                if (slot != 0) slots[find(slot & ~3L)] = slot;
+            }
+        }
+    }
+
+    // Solves the positions of a board shape and writes them to a file: dimensions, size, length, the smallest
+    // number of stones to store and the file name, by default every position of tic-tac-toe into tictactoe.db
+    public static void main(String[] args) throws IOException {
+        int dimensions = args.length > 3 ? Integer.parseInt(args[0]) : 2;
+        int size = args.length > 3 ? Integer.parseInt(args[1]) : 3;
+        int length = args.length > 3 ? Integer.parseInt(args[2]) : 3;
+        int minStones = args.length > 3 ? Integer.parseInt(args[3]) : 0;
+        Path file = Paths.get(args.length > 4 ? args[4] : "tictactoe.db");
+
+        long start = System.nanoTime();
+        SolvedPositions solved = solve(dimensions, size, length, minStones);
+        long elapsed = (System.nanoTime() - start) / 1000000;
+        solved.save(file);
+
+        System.out.println(dimensions + "D board of size " + size + ", " + length + " in a row: " + solved.numPositions
+                + " positions with at least " + minStones + " stones, up to symmetry, solved in " + elapsed + " ms");
+        System.out.println("Written to " + file + " (" + (HEADER_BYTES + (8L << solved.bits)) + " bytes)");
+    }
+}
@@ -1,6 +1,10 @@
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
+
 public class TicTacToe {
 
     private static final int MAX = 1;
@@ -12,58 +16,21 @@ public class TicTacToe {
     private static final int DRAW = 0;
     private static final int WIN = 1;
 
-    private static int[][] board = new int[3][3];
-
-    private static int evaluate(int[][] state) {
-        for (int i = 0; i < 3; i++) {
-            // Check rows
-            if (state[i][0] != EMPTY && state[i][0] == state[i][1] && state[i][0] == state[i][2]) {
-                return state[i][0];
-            }
-            // Check columns
-            if (state[0][i] != EMPTY && state[0][i] == state[1][i] && state[0][i] == state[2][i]) {
-                return state[0][i];
-            }
-        }
+    private static BitBoard board = new BitBoard(2);
+    // Root visits of every MCTS move, each adds at most one node so the tree is sized for them in main
+    private static final int MCTS_ITERATIONS = 1000000;
+    private static MCTS tree;
+    private static int numThreads = Runtime.getRuntime().availableProcessors();
 
-        // Check diagonals
-        if (state[0][0] != EMPTY && state[0][0] == state[1][1] && state[0][0] == state[2][2]) {
-            return state[0][0];
-        }
+    // Built by SolvedPositions, every position is solved on startup when the file is missing
+    private static final String SOLVED_FILE = "tictactoe.db";
+    private static SolvedPositions solved;
 
-        if (state[0][2] != EMPTY && state[0][2] == state[1][1] && state[0][2] == state[2][0]) {
-            return state[0][2];
-        }
+    // Counters of every minimax search of the run
+    private static final SearchStats stats = new SearchStats();
 
-        // Check if game is a draw
-        boolean isFull = true;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (state[i][j] == EMPTY) {
-                    isFull = false;
-                    break;
-                }
-            }
-            if (!isFull) break;
-        }
-        if (isFull) return DRAW;
-
-        return NOT_OVER;
-    }
-
-    private static ArrayList<ArrayList<Integer>> getEmptyCells(int[][] state) {
-        ArrayList<ArrayList<Integer>> result = new ArrayList<>();
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                if (state[i][j] == 0) {
-                    ArrayList<Integer> empty = new ArrayList<>();
-                    empty.add(i);
-                    empty.add(j);
-                    result.add(empty);
-                }
-            }
-        }
-        return result;
+    private static int evaluate(BitBoard state) {
+        return state.evaluate();
     }
 
     private static String printMark(int mark) {
@@ -76,10 +43,10 @@ public class TicTacToe {
         }
     }
 
-    private static void printBoard(int[][] state) {
+    private static void printBoard(BitBoard state) {
         for (int i = 0; i < 3; i++) {
             for (int j = 0; j < 3; j++) {
-                System.out.print("[" + printMark(state[i][j]) + "]");
+                System.out.print("[" + printMark(state.get(i * 3 + j)) + "]");
             }
             System.out.println();
         }
@@ -95,163 +62,62 @@ public class TicTacToe {
         }
     }
 
-    private static int[] minimax(int[][] state, int player, int parentValue) {
-        // Initialize array containing info of best move
-        int[] bestMove = new int[3];
-        bestMove[0] = -1;
-        bestMove[1] = -1;
-        if (player == MAX) {
-            bestMove[2] = Integer.MIN_VALUE;
-        } else {
-            bestMove[2] = Integer.MAX_VALUE;
-        }
+    private static int[] minimax(BitBoard state, int player, TranspositionTable table) {
+        return minimax(state, player, table, Budget.unlimited());
+    }
 
-        // Return score if game is over
-        if (evaluate(state) != NOT_OVER) {
-            bestMove[2] = evaluate(state);
-            return bestMove;
-        }
+    private static int[] minimax(BitBoard state, int player, TranspositionTable table, Budget budget) {
+        // Stored positions are answered without searching
+        int value = solved == null ? NOT_OVER : solved.probe(state, player);
+        int[] result = value != NOT_OVER ? new int[]{solved.bestCell(state, player), value * Minimax.WIN_SCORE}
+                : Minimax.search(state, player, table, budget, 1, stats, solved);
 
-        // Simulate all possible moves and pick best move
-        ArrayList<ArrayList<Integer>> emptyCells = getEmptyCells(state);
-        for (ArrayList<Integer> empty : emptyCells) {
-            state[empty.get(0)][empty.get(1)] = player;
-            int[] result = minimax(state, -player, bestMove[2]);
-            state[empty.get(0)][empty.get(1)] = 0;
-
-            if (player == MAX) {
-                if (result[2] > bestMove[2]) {
-                    bestMove[0] = empty.get(0);
-                    bestMove[1] = empty.get(1);
-                    bestMove[2] = result[2];
-                }
-                if (bestMove[2] > parentValue) break;
-            } else {
-                if (result[2] < bestMove[2]) {
-                    bestMove[0] = empty.get(0);
-                    bestMove[1] = empty.get(1);
-                    bestMove[2] = result[2];
-                }
-                if (bestMove[2] < parentValue) break;
-            }
-        }
+        // Initialize array containing info of best move
+        int[] bestMove = new int[3];
+        bestMove[0] = result[0] / 3;
+        bestMove[1] = result[0] % 3;
+        bestMove[2] = result[1];
 
         return bestMove;
     }
 
-    private static ArrayList<MCTSNode> createChildren(MCTSNode parent) {
-        ArrayList<MCTSNode> children = new ArrayList<>();
-        ArrayList<ArrayList<Integer>> emptyCells = getEmptyCells(parent.board);
-        if (emptyCells.isEmpty()) return null;
-        for (ArrayList<Integer> empty: emptyCells) {
-            int[][] boardCopy = new int[3][3];
-            for (int i = 0; i < parent.board.length; i++) {
-                boardCopy[i] = parent.board[i].clone();
-            }
-            boardCopy[empty.get(0)][empty.get(1)] = -parent.player;
-
-            MCTSNode child = new MCTSNode();
-            child.row = empty.get(0);
-            child.col = empty.get(1);
-            child.points = 0;
-            child.numTries = 0;
-            child.player = -parent.player;
-            child.board = boardCopy;
-            child.parent = parent;
-            child.children = null;
-
-            children.add(child);
-        }
-
-        return children;
+    private static int[] mcts(BitBoard board, int player) {
+        Budget budget = new Budget().iterations(MCTS_ITERATIONS);
+        return mcts(board, player, budget, numThreads, MCTS.TREE_PARALLEL);
     }
 
-    private static int runRandomly(int[][] state, int player) {
-        while (evaluate(state) == NOT_OVER) {
-            ArrayList<ArrayList<Integer>> emptyCells = getEmptyCells(state);
-            ArrayList<Integer> empty = emptyCells.get((int)(Math.random() * emptyCells.size()));
-            state[empty.get(0)][empty.get(1)] = player;
-            player = -player;
-        }
+    private static int[] mcts(BitBoard board, int player, Budget budget, int numThreads, int mode) {
+        int cell = tree.search(board, player, budget, numThreads, mode);
 
-        return evaluate(state);
-    }
+        int[] bestMove = new int[2];
+        bestMove[0] = cell / 3;
+        bestMove[1] = cell % 3;
 
-    private static double getUCBValue(MCTSNode node) {
-        if (node.numTries == 0) return Integer.MAX_VALUE;
-        return (node.points / node.numTries) + Math.sqrt(2 * Math.log(node.parent.numTries) / node.numTries);
+        return bestMove;
     }
 
-    private static int[] mcts(int[][] board, int player) {
-        MCTSNode root = new MCTSNode();
-        root.row = -1;
-        root.col = -1;
-        root.points = 0;
-        root.numTries = 0;
-        root.player = -player; // Because children player is opposite of parent
-        root.board = board;
-        root.parent = null;
-        root.children = createChildren(root);
-
-        for (int i = 0; i < 1000000; i++) {
-            // Selection
-            MCTSNode ptr = root;
-            while (ptr.children != null) {
-                double bestValue = Integer.MIN_VALUE;
-                MCTSNode bestNode = null;
-                for (MCTSNode child : ptr.children) {
-                    if (getUCBValue(child) > bestValue) {
-                        bestValue = getUCBValue(child);
-                        bestNode = child;
-                    }
-                }
-                ptr = bestNode;
-            }
-
-            // Expansion
-            ptr.children = createChildren(ptr);
+    public static void main(String[] args) throws IOException {
+        // A seed as first argument repeats every game exactly, searching on one thread
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime();
+        Rng random = new XorShiftRng(seed);
+        tree = new MCTS(MCTS_ITERATIONS + board.numCells, random.split());
+        if (args.length > 0) numThreads = 1;
+        System.out.println("Seed: " + seed);
 
-            // Simulation
-            int score = runRandomly(ptr.board, -ptr.player);
-            if (player == MIN) score = -score;
+        Path solvedFile = Paths.get(SOLVED_FILE);
+        solved = Files.exists(solvedFile) ? SolvedPositions.load(solvedFile) : SolvedPositions.solve(2, 3, 3, 0);
+        if (!solved.isFor(board)) throw new IOException(SOLVED_FILE + " holds positions of another board");
+        System.out.println("Solved positions: " + solved.numPositions + " with at least " + solved.minStones + " stones.");
 
-            // Back Propagation
-            while (ptr != null) {
-                if (score == WIN) {
-                    ptr.points += 10;
-                } else if (score == LOSE) {
-                    ptr.points -= 10;
-                }
-
-                ptr.numTries++;
-                ptr = ptr.parent;
-            }
-        }
-
-        // Return best move after certain number of iterations
-        double bestValue = Integer.MIN_VALUE;
-        MCTSNode bestNode = null;
-        for (MCTSNode child : root.children) {
-            if ((child.points / child.numTries) > bestValue) {
-                bestValue = (child.points / child.numTries);
-                bestNode = child;
-            }
-        }
-
-        int[] bestMove = new int[2];
-        bestMove[0] = bestNode.row;
-        bestMove[1] = bestNode.col;
-
-        return bestMove;
-    }
+        int[] moves = new int[9];
+        TranspositionTable table = new TranspositionTable(16);
 
-    public static void main(String[] args) {
         // Both players playing minimax (player 1: MAX, player 2: MIN)
         int player = MIN;
         while (evaluate(board) == NOT_OVER) {
             player = -player;
-            int[] nextMove = minimax(board, player, Integer.MAX_VALUE);
-            board[nextMove[0]][nextMove[1]] = player;
+            int[] nextMove = minimax(board, player, table);
+            board.play(nextMove[0] * 3 + nextMove[1], player);
 
             System.out.println("Player " + printMark(player) + ": " + nextMove[0] + ", " + nextMove[1] + ".");
 
@@ -264,22 +130,18 @@ public class TicTacToe {
 
         // Player 1 playing minimax and player 2 playing random
         int count = 0;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                board[i][j] = 0;
-            }
-        }
+        board.clear();
 
         while (evaluate(board) == NOT_OVER) {
             if (count % 2 == 0) {
-                int[] nextMove = minimax(board, MAX, Integer.MAX_VALUE);
-                board[nextMove[0]][nextMove[1]] = MAX;
+                int[] nextMove = minimax(board, MAX, table);
+                board.play(nextMove[0] * 3 + nextMove[1], MAX);
                 System.out.println("Player O: " + nextMove[0] + ", " + nextMove[1] + ".");
             } else {
-                ArrayList<ArrayList<Integer>> emptyCells = getEmptyCells(board);
-                ArrayList<Integer> nextMove = emptyCells.get((int) (Math.random() * emptyCells.size()));
-                board[nextMove.get(0)][nextMove.get(1)] = MIN;
-                System.out.println("Player X: " + nextMove.get(0) + ", " + nextMove.get(1) + ".");
+                int numMoves = board.getMoves(moves);
+                int nextMove = moves[random.nextInt(numMoves)];
+                board.play(nextMove, MIN);
+                System.out.println("Player X: " + nextMove / 3 + ", " + nextMove % 3 + ".");
             }
             printBoard(board);
             count++;
@@ -287,26 +149,25 @@ public class TicTacToe {
 
         System.out.println();
         System.out.println("Minimax Game 2 Result: " + printResult(evaluate(board)));
+        System.out.println("Transposition table: " + stats.tableHits + " hits, " + stats.tableMisses + " misses.");
         System.out.println();
 
         // Player 1 using Monte Carlo Tree Search and player 2 playing random
         count = 0;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                board[i][j] = 0;
-            }
-        }
+        board.clear();
 
         while (evaluate(board) == NOT_OVER) {
             if (count % 2 == 0) {
                 int[] nextMove = mcts(board, MAX);
-                board[nextMove[0]][nextMove[1]] = MAX;
-                System.out.println("Player O: " + nextMove[0] + ", " + nextMove[1] + ".");
+                board.play(nextMove[0] * 3 + nextMove[1], MAX);
+                tree.advance(nextMove[0] * 3 + nextMove[1]);
+                System.out.println("Player O: " + nextMove[0] + ", " + nextMove[1] + ". (reused " + tree.inheritedVisits + " visits)");
             } else {
-                ArrayList<ArrayList<Integer>> emptyCells = getEmptyCells(board);
-                ArrayList<Integer> nextMove = emptyCells.get((int) (Math.random() * emptyCells.size()));
-                board[nextMove.get(0)][nextMove.get(1)] = MIN;
-                System.out.println("Player X: " + nextMove.get(0) + ", " + nextMove.get(1) + ".");
+                int numMoves = board.getMoves(moves);
+                int nextMove = moves[random.nextInt(numMoves)];
+                board.play(nextMove, MIN);
+                tree.advance(nextMove);
+                System.out.println("Player X: " + nextMove / 3 + ", " + nextMove % 3 + ".");
             }
             printBoard(board);
             count++;
@@ -319,22 +180,18 @@ public class TicTacToe {
         // Minimax vs Human
         Scanner reader = new Scanner(System.in);
         count = 0;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                board[i][j] = 0;
-            }
-        }
+        board.clear();
         while (evaluate(board) == NOT_OVER) {
             if (count % 2 == 0) {
-                int[] nextMove = minimax(board, MAX, Integer.MAX_VALUE);
-                board[nextMove[0]][nextMove[1]] = MAX;
+                int[] nextMove = minimax(board, MAX, table);
+                board.play(nextMove[0] * 3 + nextMove[1], MAX);
                 System.out.println("Player O: " + nextMove[0] + ", " + nextMove[1] + ".");
             } else {
                 System.out.print("Enter a row (0 - 2): ");
                 int row = reader.nextInt();
                 System.out.print("Enter a col (0 - 2): ");
                 int col = reader.nextInt();
-                board[row][col] = MIN;
+                board.play(row * 3 + col, MIN);
                 System.out.println("Player X: " + row + ", " + col + ".");
             }
             printBoard(board);
@@ -347,22 +204,27 @@ public class TicTacToe {
 
         // MCTS vs Human
         count = 0;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                board[i][j] = 0;
-            }
-        }
+        board.clear();
         while (evaluate(board) == NOT_OVER) {
             if (count % 2 == 0) {
+                long start = System.nanoTime();
                 int[] nextMove = mcts(board, MAX);
-                board[nextMove[0]][nextMove[1]] = MAX;
-                System.out.println("Player O: " + nextMove[0] + ", " + nextMove[1] + ".");
+                long millis = (System.nanoTime() - start) / 1000000;
+                board.play(nextMove[0] * 3 + nextMove[1], MAX);
+                tree.advance(nextMove[0] * 3 + nextMove[1]);
+                System.out.println("Player O: " + nextMove[0] + ", " + nextMove[1] + ". (reused " + tree.inheritedVisits + " visits, " + millis + " ms)");
+
+                // Keep searching while the human thinks, unless the run has to be repeatable
+                if (evaluate(board) == NOT_OVER && args.length == 0) {
+                    tree.startPondering(board, MIN, numThreads, MCTS.TREE_PARALLEL);
+                }
             } else {
                 System.out.print("Enter a row (0 - 2): ");
                 int row = reader.nextInt();
                 System.out.print("Enter a col (0 - 2): ");
                 int col = reader.nextInt();
-                board[row][col] = MIN;
+                board.play(row * 3 + col, MIN);
+                tree.advance(row * 3 + col);
                 System.out.println("Player X: " + row + ", " + col + ".");
             }
             printBoard(board);
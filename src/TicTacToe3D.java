@@ -1,4 +1,7 @@
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 public class TicTacToe3D {
 
@@ -11,89 +14,22 @@ public class TicTacToe3D {
     private static final int DRAW = 0;
     private static final int WIN = 1;
 
-    private static int[][][] board = new int[3][3][3];
+    private static BitBoard board = new BitBoard(3);
+    // Root visits of every MCTS move, each adds at most one node so the tree is sized for them in main
+    private static final int MCTS_ITERATIONS = 100000;
+    private static MCTS tree;
+    private static int numThreads = Runtime.getRuntime().availableProcessors();
 
-    private static int evaluate(int[][][] state) {
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                // Check rows
-                if (state[i][0][j] != EMPTY && state[i][0][j] == state[i][1][j] && state[i][0][j] == state[i][2][j]) {
-                    return state[i][0][j];
-                }
-                // Check columns
-                if (state[0][i][j] != EMPTY && state[0][i][j] == state[1][i][j] && state[0][i][j] == state[2][i][j]) {
-                    return state[0][i][j];
-                }
-                // Check height
-                if (state[i][j][0] != EMPTY && state[i][j][0] == state[i][j][1] && state[i][j][0] == state[i][j][2]) {
-                    return state[i][j][0];
-                }
-            }
-        }
-
-        // Check diagonals
-        for (int i = 0; i < 3; i++) {
-            if (state[0][0][i] != EMPTY && state[0][0][i] == state[1][1][i] && state[0][0][i] == state[2][2][i]) {
-                return state[0][0][i];
-            }
-            if (state[2][0][i] != EMPTY && state[2][0][i] == state[1][1][i] && state[2][0][i] == state[0][2][i]) {
-                return state[2][0][i];
-            }
-            if (state[0][i][0] != EMPTY && state[0][i][0] == state[1][i][1] && state[0][i][0] == state[2][i][2]) {
-                return state[0][i][0];
-            }
-            if (state[2][i][0] != EMPTY && state[2][i][0] == state[1][i][1] && state[2][i][0] == state[0][i][2]) {
-                return state[2][i][0];
-            }
-            if (state[i][0][0] != EMPTY && state[i][0][0] == state[i][1][1] && state[i][0][0] == state[i][2][2]) {
-                return state[i][0][0];
-            }
-            if (state[i][2][0] != EMPTY && state[i][2][0] == state[i][1][1] && state[i][2][0] == state[i][0][2]) {
-                return state[i][2][0];
-            }
-        }
-        if (state[0][0][0] != EMPTY && state[0][0][0] == state[1][1][1] && state[0][0][0] == state[2][2][2]) {
-            return state[0][0][0];
-        }
-        if (state[2][0][0] != EMPTY && state[2][0][0] == state[1][1][1] && state[2][0][0] == state[0][2][2]) {
-            return state[2][0][0];
-        }
-
-        // Check if game is a draw
-        boolean isFull = true;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                for (int k = 0; k < 3; k++) {
-                    if (state[i][j][k] == EMPTY) {
-                        isFull = false;
-                        break;
-                    }
-                }
-                if (!isFull) break;
-            }
-            if (!isFull) break;
-        }
-        if (isFull) return DRAW;
+    // Endgame positions built by SolvedPositions, for example "java SolvedPositions 3 3 3 22 tictactoe3d.db".
+    // Searches run without them when the file is missing
+    private static final String SOLVED_FILE = "tictactoe3d.db";
+    private static SolvedPositions solved;
 
-        return NOT_OVER;
-    }
+    // Counters of every minimax search of the run
+    private static final SearchStats stats = new SearchStats();
 
-    private static ArrayList<ArrayList<Integer>> getEmptyCells(int[][][] state) {
-        ArrayList<ArrayList<Integer>> result = new ArrayList<>();
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                for (int k = 0; k < 3; k++) {
-                    if (state[i][j][k] == 0) {
-                        ArrayList<Integer> empty = new ArrayList<>();
-                        empty.add(i);
-                        empty.add(j);
-                        empty.add(k);
-                        result.add(empty);
-                    }
-                }
-            }
-        }
-        return result;
+    private static int evaluate(BitBoard state) {
+        return state.evaluate();
     }
 
     private static String printMark(int mark) {
@@ -106,12 +42,12 @@ public class TicTacToe3D {
         }
     }
 
-    private static void printBoard(int[][][] state) {
+    private static void printBoard(BitBoard state) {
         System.out.println("Height 1: Height 2: Height 3:");
         for (int i = 0; i < 3; i++) {
             for (int k = 0; k < 3; k++) {
                 for (int j = 0; j < 3; j++) {
-                    System.out.print("[" + printMark(state[i][j][k]) + "]");
+                    System.out.print("[" + printMark(state.get(i * 9 + j * 3 + k)) + "]");
                 }
                 System.out.print(" ");
             }
@@ -129,173 +65,69 @@ public class TicTacToe3D {
         }
     }
 
-    private static int[] minimax(int[][][] state, int player, int parentValue) {
-        // Initialize array containing info of best move
-        int[] bestMove = new int[4];
-        bestMove[0] = -1;
-        bestMove[1] = -1;
-        bestMove[2] = -1;
-        if (player == MAX) {
-            bestMove[3] = Integer.MIN_VALUE;
-        } else {
-            bestMove[3] = Integer.MAX_VALUE;
-        }
+    private static int[] minimax(BitBoard state, int player, TranspositionTable table) {
+        return minimax(state, player, table, Budget.unlimited());
+    }
 
-        // Return score if game is over
-        if (evaluate(state) != NOT_OVER) {
-            bestMove[3] = evaluate(state);
-            return bestMove;
-        }
+    private static int[] minimax(BitBoard state, int player, TranspositionTable table, Budget budget) {
+        // Stored positions are answered without searching
+        int value = solved == null ? NOT_OVER : solved.probe(state, player);
+        int[] result = value != NOT_OVER ? new int[]{solved.bestCell(state, player), value * Minimax.WIN_SCORE}
+                : Minimax.search(state, player, table, budget, numThreads, stats, solved);
 
-        // Simulate all possible moves and pick best move
-        ArrayList<ArrayList<Integer>> emptyCells = getEmptyCells(state);
-        for (ArrayList<Integer> empty : emptyCells) {
-            state[empty.get(0)][empty.get(1)][empty.get(2)] = player;
-            int[] result = minimax(state, -player, bestMove[3]);
-            state[empty.get(0)][empty.get(1)][empty.get(2)] = 0;
-
-            if (player == MAX) {
-                if (result[3] > bestMove[3]) {
-                    bestMove[0] = empty.get(0);
-                    bestMove[1] = empty.get(1);
-                    bestMove[2] = empty.get(2);
-                    bestMove[3] = result[3];
-                }
-                if (bestMove[3] > parentValue) break;
-            } else {
-                if (result[3] < bestMove[3]) {
-                    bestMove[0] = empty.get(0);
-                    bestMove[1] = empty.get(1);
-                    bestMove[2] = empty.get(2);
-                    bestMove[3] = result[3];
-                }
-                if (bestMove[3] < parentValue) break;
-            }
-        }
+        // Initialize array containing info of best move
+        int[] bestMove = new int[4];
+        bestMove[0] = result[0] / 9;
+        bestMove[1] = result[0] / 3 % 3;
+        bestMove[2] = result[0] % 3;
+        bestMove[3] = result[1];
 
         return bestMove;
     }
 
-    private static ArrayList<MCTSNode> createChildren(MCTSNode parent) {
-        ArrayList<MCTSNode> children = new ArrayList<>();
-        ArrayList<ArrayList<Integer>> emptyCells = getEmptyCells(parent.board3D);
-        if (emptyCells.isEmpty()) return null;
-        for (ArrayList<Integer> empty : emptyCells) {
-            int[][][] boardCopy = new int[3][3][3];
-            for (int i = 0; i < 3; i++) {
-                int[][] copy = new int[3][3];
-                for (int j = 0; j < 3; j++) {
-                    copy[j] = parent.board3D[i][j].clone();
-                }
-                boardCopy[i] = copy;
-            }
-            boardCopy[empty.get(0)][empty.get(1)][empty.get(2)] = -parent.player;
-
-            MCTSNode child = new MCTSNode();
-            child.row = empty.get(0);
-            child.col = empty.get(1);
-            child.height = empty.get(2);
-            child.points = 0;
-            child.numTries = 0;
-            child.player = -parent.player;
-            child.board3D = boardCopy;
-            child.parent = parent;
-            child.children = null;
-
-            children.add(child);
-        }
-
-        return children;
+    private static int[] mcts(BitBoard board, int player) {
+        Budget budget = new Budget().iterations(MCTS_ITERATIONS);
+        return mcts(board, player, budget, numThreads, MCTS.TREE_PARALLEL);
     }
 
-    private static int runRandomly(int[][][] state, int player) {
-        while (evaluate(state) == NOT_OVER) {
-            ArrayList<ArrayList<Integer>> emptyCells = getEmptyCells(state);
-            ArrayList<Integer> empty = emptyCells.get((int)(Math.random() * emptyCells.size()));
-            state[empty.get(0)][empty.get(1)][empty.get(2)] = player;
-            player = -player;
-        }
+    private static int[] mcts(BitBoard board, int player, Budget budget, int numThreads, int mode) {
+        int cell = tree.search(board, player, budget, numThreads, mode);
 
-        return evaluate(state);
-    }
+        int[] bestMove = new int[3];
+        bestMove[0] = cell / 9;
+        bestMove[1] = cell / 3 % 3;
+        bestMove[2] = cell % 3;
 
-    private static double getUCBValue(MCTSNode node) {
-        if (node.numTries == 0) return Integer.MAX_VALUE;
-        return (node.points / node.numTries) + Math.sqrt(2 * Math.log(node.parent.numTries) / node.numTries);
+        return bestMove;
     }
 
-    private static int[] mcts(int[][][] board, int player) {
-        MCTSNode root = new MCTSNode();
-        root.row = -1;
-        root.col = -1;
-        root.height = -1;
-        root.points = 0;
-        root.numTries = 0;
-        root.player = -player; // Because children player is opposite of parent
-        root.board3D = board;
-        root.parent = null;
-        root.children = createChildren(root);
-
-        for (int i = 0; i < 100000; i++) {
-            // Selection
-            MCTSNode ptr = root;
-            while (ptr.children != null) {
-                double bestValue = Integer.MIN_VALUE;
-                MCTSNode bestNode = null;
-                for (MCTSNode child : ptr.children) {
-                    if (getUCBValue(child) > bestValue) {
-                        bestValue = getUCBValue(child);
-                        bestNode = child;
-                    }
-                }
-                ptr = bestNode;
-            }
-
-            // Expansion
-            ptr.children = createChildren(ptr);
-
-            // Simulation
-            int score = runRandomly(ptr.board3D, -ptr.player);
-            if (player == MIN) score = -score;
+    public static void main(String[] args) throws IOException {
+        // A seed as first argument repeats every game exactly, searching on one thread
+        long seed = args.length > 0 ? Long.parseLong(args[0]) : System.nanoTime();
+        Rng random = new XorShiftRng(seed);
+        tree = new MCTS(MCTS_ITERATIONS + board.numCells, random.split());
+        if (args.length > 0) numThreads = 1;
+        System.out.println("Seed: " + seed);
 
-            // Back Propagation
-            while (ptr != null) {
-                if (score == WIN) {
-                    ptr.points += 10;
-                } else if (score == LOSE) {
-                    ptr.points -= 10;
-                }
-
-                ptr.numTries++;
-                ptr = ptr.parent;
-            }
+        Path solvedFile = Paths.get(SOLVED_FILE);
+        if (Files.exists(solvedFile)) {
+            solved = SolvedPositions.load(solvedFile);
+            if (!solved.isFor(board)) throw new IOException(SOLVED_FILE + " holds positions of another board");
+            tree.setSolvedPositions(solved);
+            System.out.println("Solved positions: " + solved.numPositions + " with at least " + solved.minStones + " stones.");
         }
 
-        // Return best move after certain number of iterations
-        double bestValue = Integer.MIN_VALUE;
-        MCTSNode bestNode = null;
-        for (MCTSNode child : root.children) {
-            if ((child.points / child.numTries) > bestValue) {
-                bestValue = (child.points / child.numTries);
-                bestNode = child;
-            }
-        }
-
-        int[] bestMove = new int[3];
-        bestMove[0] = bestNode.row;
-        bestMove[1] = bestNode.col;
-        bestMove[2] = bestNode.height;
-
-        return bestMove;
-    }
+        int[] moves = new int[27];
+        TranspositionTable table = new TranspositionTable(22);
+        // Full depth is out of reach on the cube, seeded runs count nodes instead of time to stay repeatable
+        Budget budget = args.length > 0 ? new Budget().nodes(1000000) : new Budget().time(1000);
 
-    public static void main(String[] args) {
         // Both players playing minimax (player 1: MAX, player 2: MIN)
         int player = MIN;
         while (evaluate(board) == NOT_OVER) {
             player = -player;
-            int[] nextMove = minimax(board, player, Integer.MAX_VALUE);
-            board[nextMove[0]][nextMove[1]][nextMove[2]] = player;
+            int[] nextMove = minimax(board, player, table, budget);
+            board.play(nextMove[0] * 9 + nextMove[1] * 3 + nextMove[2], player);
 
             System.out.println("Player " + printMark(player) + ": " + nextMove[0] + ", " + nextMove[1] + ", " + nextMove[2] + ".");
 
@@ -308,24 +140,18 @@ public class TicTacToe3D {
 
         // Player 1 playing minimax and player 2 playing random
         int count = 0;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                for (int k = 0; k < 3; k++) {
-                    board[i][j][k] = 0;
-                }
-            }
-        }
+        board.clear();
 
         while (evaluate(board) == NOT_OVER) {
             if (count % 2 == 0) {
-                int[] nextMove = minimax(board, MIN, Integer.MAX_VALUE);
-                board[nextMove[0]][nextMove[1]][nextMove[2]] = MAX;
+                int[] nextMove = minimax(board, MIN, table, budget);
+                board.play(nextMove[0] * 9 + nextMove[1] * 3 + nextMove[2], MAX);
                 System.out.println("Player O: " + nextMove[0] + ", " + nextMove[1] + ".");
             } else {
-                ArrayList<ArrayList<Integer>> emptyCells = getEmptyCells(board);
-                ArrayList<Integer> nextMove = emptyCells.get((int) (Math.random() * emptyCells.size()));
-                board[nextMove.get(0)][nextMove.get(1)][nextMove.get(2)] = MIN;
-                System.out.println("Player X: " + nextMove.get(0) + ", " + nextMove.get(1) + ", " + nextMove.get(2) + ".");
+                int numMoves = board.getMoves(moves);
+                int nextMove = moves[random.nextInt(numMoves)];
+                board.play(nextMove, MIN);
+                System.out.println("Player X: " + nextMove / 9 + ", " + nextMove / 3 % 3 + ", " + nextMove % 3 + ".");
             }
             printBoard(board);
             count++;
@@ -333,28 +159,25 @@ public class TicTacToe3D {
 
         System.out.println();
         System.out.println("Minimax Game 2 Result: " + printResult(evaluate(board)));
+        System.out.println("Transposition table: " + stats.tableHits + " hits, " + stats.tableMisses + " misses.");
         System.out.println();
 
         // Player 1 using Monte Carlo Tree Search and player 2 playing random
         count = 0;
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                for (int k = 0; k < 3; k++) {
-                    board[i][j][k] = 0;
-                }
-            }
-        }
+        board.clear();
 
         while (evaluate(board) == NOT_OVER) {
             if (count % 2 == 0) {
                 int[] nextMove = mcts(board, MAX);
-                board[nextMove[0]][nextMove[1]][nextMove[2]] = MAX;
-                System.out.println("Player O: " + nextMove[0] + ", " + nextMove[1] + ", " + nextMove[2] + ".");
+                board.play(nextMove[0] * 9 + nextMove[1] * 3 + nextMove[2], MAX);
+                tree.advance(nextMove[0] * 9 + nextMove[1] * 3 + nextMove[2]);
+                System.out.println("Player O: " + nextMove[0] + ", " + nextMove[1] + ", " + nextMove[2] + ". (reused " + tree.inheritedVisits + " visits)");
             } else {
-                ArrayList<ArrayList<Integer>> emptyCells = getEmptyCells(board);
-                ArrayList<Integer> nextMove = emptyCells.get((int) (Math.random() * emptyCells.size()));
-                board[nextMove.get(0)][nextMove.get(1)][nextMove.get(2)] = MIN;
-                System.out.println("Player X: " + nextMove.get(0) + ", " + nextMove.get(1) + ".");
+                int numMoves = board.getMoves(moves);
+                int nextMove = moves[random.nextInt(numMoves)];
+                board.play(nextMove, MIN);
+                tree.advance(nextMove);
+                System.out.println("Player X: " + nextMove / 9 + ", " + nextMove / 3 % 3 + ".");
             }
             printBoard(board);
             count++;
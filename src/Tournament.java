@@ -0,0 +1,315 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Plays two players against each other for many games at once, on a fixed pool of worker threads that each own
+// a board and an instance of both players, so games share no state. Players are given as "random", "minimax",
+// "minimax:<depth>" or "mcts:<iterations>". Arguments: player A, player B, number of games, then optionally the
+// board as dimensions, size and length, the number of threads, -v to print every game, -o <file> to append
+// every game to a record file for ReplayAnalyzer and -r <file> to append a SearchReport line for every
+// searched move
+public class Tournament {
+
+    private static final int MAX = BitBoard.MAX;
+    private static final int MIN = BitBoard.MIN;
+    private static final int NOT_OVER = BitBoard.NOT_OVER;
+    private static final int DRAW = BitBoard.DRAW;
+
+    // One side of the games of a worker, used by that worker only
+    interface Player {
+
+        // Called before each game
+        void reset();
+
+        // Cell to play for player in the position
+        int move(BitBoard board, int player);
+
+        // Every move of the game is passed on once it is played, the player's own included
+        void played(int cell);
+
+        // Counters of the player's last move, null when it does not search
+        SearchReport.Counters counters();
+    }
+
+    private static final class RandomPlayer implements Player {
+
+        private final Rng random;
+        private final int[] moves;
+
+        RandomPlayer(BitBoard board, Rng random) {
+            this.random = random;
+            this.moves = new int[board.numCells];
+        }
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public int move(BitBoard board, int player) {
+            return moves[random.nextInt(board.getMoves(moves))];
+        }
+
+        @Override
+        public void played(int cell) {
+        }
+
+        @Override
+        public SearchReport.Counters counters() {
+            return null;
+        }
+    }
+
+    private static final class MinimaxPlayer implements Player {
+
+        private final Budget budget;
+        private final TranspositionTable table = new TranspositionTable(16);
+        private final SearchStats stats = new SearchStats();
+
+        MinimaxPlayer(int depth) {
+            this.budget = depth < 0 ? Budget.unlimited() : new Budget().iterations(depth);
+        }
+
+        @Override
+        public void reset() {
+            table.clear();
+        }
+
+        @Override
+        public int move(BitBoard board, int player) {
+            stats.clear();
+            return Minimax.search(board, player, table, budget, 1, stats)[0];
+        }
+
+        @Override
+        public void played(int cell) {
+        }
+
+        @Override
+        public SearchReport.Counters counters() {
+            return stats;
+        }
+    }
+
+    // Keeps its tree from move to move
+    private static final class MCTSPlayer implements Player {
+
+        private final MCTS tree;
+        private final int iterations;
+
+        MCTSPlayer(BitBoard board, int iterations, Rng random) {
+            this.tree = new MCTS(4 * iterations + board.numCells, random);
+            this.iterations = iterations;
+        }
+
+        @Override
+        public void reset() {
+            tree.clear();
+        }
+
+        @Override
+        public int move(BitBoard board, int player) {
+            return tree.search(board, player, iterations, 1, MCTS.TREE_PARALLEL);
+        }
+
+        @Override
+        public void played(int cell) {
+            tree.advance(cell);
+        }
+
+        @Override
+        public SearchReport.Counters counters() {
+            return tree.stats();
+        }
+    }
+
+    private static Player createPlayer(String spec, BitBoard board, Rng random) {
+        String[] parts = spec.split(":");
+        switch (parts[0]) {
+            case "random":
+                return new RandomPlayer(board, random);
+            case "minimax":
+                return new MinimaxPlayer(parts.length > 1 ? Integer.parseInt(parts[1]) : -1);
+            case "mcts":
+                return new MCTSPlayer(board, parts.length > 1 ? Integer.parseInt(parts[1]) : 1000, random);
+            default:
+                throw new IllegalArgumentException("Unknown player " + spec);
+        }
+    }
+
+    // Results of the games of one worker, from player A's side, added up at the end
+    private static final class Results {
+        long wins;
+        long draws;
+        long losses;
+        final LatencyHistogram[] latencies = {new LatencyHistogram(), new LatencyHistogram()};
+
+        void add(Results other) {
+            wins += other.wins;
+            draws += other.draws;
+            losses += other.losses;
+            latencies[0].add(other.latencies[0]);
+            latencies[1].add(other.latencies[1]);
+        }
+    }
+
+    private final String[] specs;
+    private final int dimensions;
+    private final int size;
+    private final int length;
+    private final boolean verbose;
+    private final GameRecordWriter records; // Null when games are not recorded
+    private final SearchReport report; // Null when moves are not reported
+    private long seed;
+
+    Tournament(String playerA, String playerB, int dimensions, int size, int length, boolean verbose,
+               GameRecordWriter records, SearchReport report) {
+        this.specs = new String[]{playerA, playerB};
+        this.dimensions = dimensions;
+        this.size = size;
+        this.length = length;
+        this.verbose = verbose;
+        this.records = records;
+        this.report = report;
+    }
+
+    // Plays numGames games on numThreads threads, player A moving first in the even games
+    Results play(long numGames, int numThreads, long seed) throws Exception {
+        this.seed = seed;
+        AtomicLong nextGame = new AtomicLong();
+        Rng random = new XorShiftRng(seed);
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            List<Future<Results>> workers = new ArrayList<>();
+            for (int t = 0; t < numThreads; t++) {
+                Rng workerRandom = random.split();
+                workers.add(pool.submit(() -> playGames(nextGame, numGames, workerRandom)));
+            }
+
+            Results total = new Results();
+            for (Future<Results> worker : workers) {
+                total.add(worker.get());
+            }
+            return total;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // Claims games until every game has been played
+    private Results playGames(AtomicLong nextGame, long numGames, Rng random) throws IOException {
+        BitBoard board = new BitBoard(dimensions, size, length);
+        Player[] players = {createPlayer(specs[0], board, random.split()), createPlayer(specs[1], board, random.split())};
+        Results results = new Results();
+        StringBuilder text = verbose ? new StringBuilder() : null;
+        int[] moves = new int[board.numCells];
+        GameRecord record = new GameRecord();
+
+        for (long game = nextGame.getAndIncrement(); game < numGames; game = nextGame.getAndIncrement()) {
+            board.clear();
+            players[0].reset();
+            players[1].reset();
+            if (text != null) text.setLength(0);
+
+            // Index in players of the one playing MAX
+            int first = (int) (game & 1);
+            int player = MAX;
+            int result = NOT_OVER;
+            while (result == NOT_OVER) {
+                int index = player == MAX ? first : 1 - first;
+                long start = System.nanoTime();
+                int cell = players[index].move(board, player);
+                long nanos = System.nanoTime() - start;
+                results.latencies[index].record(nanos);
+                SearchReport.Counters counters = report != null ? players[index].counters() : null;
+                if (counters != null) {
+                    report.write("tournament", game, specs[index], board, player, cell, nanos, counters);
+                }
+
+                board.play(cell, player);
+                players[0].played(cell);
+                players[1].played(cell);
+                result = board.evaluate(cell);
+                player = -player;
+                moves[board.numStones - 1] = cell;
+                if (text != null) text.append(' ').append(cell);
+            }
+            if (records != null) {
+                records.write(record.set(board, seed, specs[first], specs[1 - first], moves, board.numStones));
+            }
+
+            int resultForA = first == 0 ? result : -result;
+            if (resultForA == MAX) {
+                results.wins++;
+            } else if (resultForA == DRAW) {
+                results.draws++;
+            } else {
+                results.losses++;
+            }
+            if (text != null) {
+                String outcome = result == DRAW ? "draw" : (resultForA == MAX ? specs[0] : specs[1]) + " wins";
+                System.out.println("Game " + game + ", " + specs[first] + " first:" + text + ", " + outcome);
+            }
+        }
+        return results;
+    }
+
+    private static String printLatency(String spec, LatencyHistogram latency) {
+        return String.format("%s per move (us): p50 %.1f  p90 %.1f  p99 %.1f  max %.1f  mean %.1f  over %d moves",
+                spec, latency.percentile(0.5) / 1e3, latency.percentile(0.9) / 1e3, latency.percentile(0.99) / 1e3,
+                latency.max() / 1e3, latency.mean() / 1e3, latency.count());
+    }
+
+    public static void main(String[] args) throws Exception {
+        boolean verbose = false;
+        String recordFile = null;
+        String reportFile = null;
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-v")) {
+                verbose = true;
+            } else if (args[i].equals("-o") && i + 1 < args.length) {
+                recordFile = args[++i];
+            } else if (args[i].equals("-r") && i + 1 < args.length) {
+                reportFile = args[++i];
+            } else {
+                values.add(args[i]);
+            }
+        }
+
+        String playerA = values.size() > 0 ? values.get(0) : "mcts:200";
+        String playerB = values.size() > 1 ? values.get(1) : "random";
+        long numGames = values.size() > 2 ? Long.parseLong(values.get(2)) : 100000;
+        int dimensions = values.size() > 5 ? Integer.parseInt(values.get(3)) : 2;
+        int size = values.size() > 5 ? Integer.parseInt(values.get(4)) : 3;
+        int length = values.size() > 5 ? Integer.parseInt(values.get(5)) : 3;
+        int numThreads = values.size() > 6 ? Integer.parseInt(values.get(6)) : Runtime.getRuntime().availableProcessors();
+
+        GameRecordWriter records = recordFile != null ? new GameRecordWriter(Paths.get(recordFile)) : null;
+        SearchReport report = reportFile != null ? new SearchReport(Paths.get(reportFile)) : null;
+        Results results;
+        long start = System.nanoTime();
+        try {
+            Tournament tournament = new Tournament(playerA, playerB, dimensions, size, length, verbose, records,
+                    report);
+            results = tournament.play(numGames, numThreads, System.nanoTime());
+        } finally {
+            if (records != null) records.close();
+            if (report != null) report.close();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        System.out.println(playerA + " vs " + playerB + " on " + dimensions + "D size " + size + ", " + length
+                + " in a row, " + numThreads + " threads");
+        System.out.printf("%s: %d wins, %d draws, %d losses in %d games%n", playerA, results.wins, results.draws,
+                results.losses, numGames);
+        System.out.printf("%.0f games/s over %.1f s%n", numGames / seconds, seconds);
+        System.out.println(printLatency(playerA, results.latencies[0]));
+        System.out.println(printLatency(playerB, results.latencies[1]));
+    }
+}
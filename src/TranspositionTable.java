@@ -0,0 +1,65 @@
+import java.util.Arrays;
+
+// Safe to share between searching threads: an entry is one long holding value, best cell, flag and depth,
+// and its key is stored xor the entry, so a slot torn by two writers fails the key check
+class TranspositionTable {
+
+    static final int EMPTY = 0;
+    static final int EXACT = 1;
+    static final int LOWER = 2; // Value is at least the stored value
+    static final int UPPER = 3; // Value is at most the stored value
+
+    private final int bits;
+    private final long[] keys;
+    private final long[] entries;
+
+    // Holds 2^bits entries, a new entry always replaces the one in its slot
+    TranspositionTable(int bits) {
+        this.bits = bits;
+        this.keys = new long[1 << bits];
+        this.entries = new long[1 << bits];
+    }
+
+    // Returns the entry stored for key, or 0 (flag EMPTY) when the key is not stored
+    long probe(long key) {
+        int index = indexOf(key);
+        long entry = entries[index];
+        if (entry != 0 && (keys[index] ^ entry) == key) return entry;
+        return 0;
+    }
+
+    // cell is the best move found, or -1
+    void store(long key, int value, int flag, int depth, int cell) {
+        // Deeper results are kept as less deep
+        long entry = (long) value << 32 | (long) (cell + 1) << 16 | Math.min(depth, 0xFF) << 8 | flag;
+        int index = indexOf(key);
+        entries[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    void clear() {
+        Arrays.fill(entries, 0);
+    }
+
+    static int value(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    static int flag(long entry) {
+        return (int) entry & 0xFF;
+    }
+
+    // Plies searched below the position, the value holds only for that many
+    static int depth(long entry) {
+        return (int) (entry >>> 8) & 0xFF;
+    }
+
+    // Best move found for the position, or -1
+    static int cell(long entry) {
+        return ((int) (entry >>> 16) & 0xFFFF) - 1;
+    }
+
+    private int indexOf(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - bits));
+    }
+}
@@ -0,0 +1,40 @@
+// xorshift64* generator, seeds are mixed with SplitMix64 so nearby seeds give unrelated streams
+class XorShiftRng implements Rng {
+
+    private long state;
+
+    XorShiftRng(long seed) {
+        long z = seed + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z ^= z >>> 31;
+        state = z != 0 ? z : 0x9E3779B97F4A7C15L; // All zero state would only ever return zero
+    }
+
+    long nextLong() {
+        state ^= state >>> 12;
+        state ^= state << 25;
+        state ^= state >>> 27;
+        return state * 0x2545F4914F6CDD1DL;
+    }
+
+    // Multiply and shift instead of modulo or floating point, rejecting the few values that would bias it
+    @Override
+    public int nextInt(int bound) {
+        long product = (nextLong() >>> 32) * bound;
+        int low = (int) product;
+        if (Integer.compareUnsigned(low, bound) < 0) {
+            int threshold = Integer.remainderUnsigned(-bound, bound);
+            while (Integer.compareUnsigned(low, threshold) < 0) {
+                product = (nextLong() >>> 32) * bound;
+                low = (int) product;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    @Override
+    public Rng split() {
+        return new XorShiftRng(nextLong());
+    }
+}